@@ -20,33 +20,81 @@ import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
 import org.terasology.engine.particles.components.ParticleEmitterComponent;
+import org.terasology.engine.registry.In;
 import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
 import org.terasology.module.health.components.HealthComponent;
 import org.terasology.module.health.events.DoDamageEvent;
-import org.terasology.projectile.HitTargetEvent;
+import org.terasology.projectile.ProjectileAuthoritySystem;
+import org.terasology.projectile.ProjectileCollisionEvent;
 import org.terasology.projectile.ProjectileActionComponent;
+import org.terasology.projectile.hit.HitBatch;
+import org.terasology.projectile.hit.ProjectileHit;
+import org.terasology.projectile.metrics.Metric;
+import org.terasology.projectile.metrics.ProjectileMetrics;
 
 @RegisterSystem(RegisterMode.AUTHORITY)
 public class FireballCollisionHandler extends BaseComponentSystem {
-    @ReceiveEvent(components = {FireballComponent.class})
-    public void onCollision(HitTargetEvent event, EntityRef entity, ProjectileActionComponent projectile) {
-        EntityRef targetEntity = event.getTarget();
+    @In
+    private ProjectileMetrics metrics;
+
+    @In
+    private ProjectileAuthoritySystem projectileAuthoritySystem;
+
+    private Metric hits;
+
+    @Override
+    public void initialise() {
+        hits = metrics.counter(ProjectileMetrics.FIREBALL_HITS);
+        projectileAuthoritySystem.getHitResolvers().register(FireballComponent.class, this::resolveHit);
+    }
+
+    @Override
+    public void shutdown() {
+        projectileAuthoritySystem.getHitResolvers().unregister(FireballComponent.class);
+    }
+
+    /**
+     * The fireball deals all its health as damage to the target and takes as much damage as the target had health
+     * left, counting the damage other hits of the tick already dealt to it. Fireballs with health to spare fly on.
+     */
+    private void resolveHit(ProjectileHit hit, HitBatch batch) {
+        hits.add(1);
+        EntityRef entity = hit.getProjectile();
+        EntityRef targetEntity = hit.getTarget();
+        ProjectileActionComponent projectile = hit.getAction();
         HealthComponent health = entity.getComponent(HealthComponent.class);
-        int oldTargetHealth = targetEntity.getComponent(HealthComponent.class).currentHealth;
-        targetEntity.send(new DoDamageEvent(health.currentHealth, projectile.damageType));
-        int newTargetHealth = 0;
-        if (targetEntity.exists()) {
-            newTargetHealth = targetEntity.getComponent(HealthComponent.class).currentHealth;
-        }
+        int targetHealth = Math.max(0, hit.getTargetHealth().currentHealth - batch.getPendingDamage(targetEntity));
+        int dealt = Math.min(health.currentHealth, targetHealth);
+        batch.damage(targetEntity, health.currentHealth, projectile.damageType);
         // inflict same amount of damage on fireball as on the target
-        entity.send(new DoDamageEvent(oldTargetHealth - newTargetHealth, projectile.damageType));
+        batch.damage(entity, dealt, projectile.damageType);
 
-        if (entity.exists()) {
-            ParticleEmitterComponent particleEmitter = entity.getComponent(ParticleEmitterComponent.class);
-            particleEmitter.maxParticles -= (oldTargetHealth - newTargetHealth) / health.maxHealth
-                    * particleEmitter.spawnRateMax;
+        ParticleEmitterComponent particleEmitter = entity.getComponent(ParticleEmitterComponent.class);
+        if (entity.exists() && particleEmitter != null) {
+            particleEmitter.maxParticles -= dealt / health.maxHealth * particleEmitter.spawnRateMax;
+            entity.saveComponent(particleEmitter);
         }
+    }
 
+    /**
+     * Two colliding fireballs wear each other down by the health of the weaker one. The pair is resolved once, from the
+     * fireball with the lower entity id.
+     */
+    @ReceiveEvent(components = {FireballComponent.class})
+    public void onProjectileCollision(ProjectileCollisionEvent event, EntityRef entity, ProjectileActionComponent projectile) {
+        EntityRef other = event.getOther();
+        if (!other.exists() || !other.hasComponent(FireballComponent.class) || other.getId() < entity.getId()) {
+            return;
+        }
+        HealthComponent health = entity.getComponent(HealthComponent.class);
+        HealthComponent otherHealth = other.getComponent(HealthComponent.class);
+        if (health == null || otherHealth == null) {
+            return;
+        }
+        int damage = Math.min(health.currentHealth, otherHealth.currentHealth);
+        ProjectileActionComponent otherProjectile = other.getComponent(ProjectileActionComponent.class);
+        other.send(new DoDamageEvent(damage, projectile.damageType));
+        entity.send(new DoDamageEvent(damage, otherProjectile != null ? otherProjectile.damageType : projectile.damageType));
         event.consume();
     }
 }
@@ -16,9 +16,11 @@
 package org.terasology.fireball;
 
 import org.joml.Vector3f;
+import org.terasology.engine.entitySystem.entity.EntityManager;
 import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.engine.entitySystem.event.EventPriority;
 import org.terasology.engine.entitySystem.event.Priority;
+import org.terasology.engine.entitySystem.prefab.Prefab;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
@@ -29,6 +31,7 @@ import org.terasology.engine.particles.events.ParticleSystemUpdateEvent;
 import org.terasology.engine.particles.functions.RegisterParticleSystemFunction;
 import org.terasology.engine.registry.In;
 import org.terasology.engine.rendering.logic.MeshComponent;
+import org.terasology.gestalt.entitysystem.component.Component;
 import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
 import org.terasology.projectile.FireProjectileEvent;
 import org.terasology.projectile.ProjectileActionComponent;
@@ -41,25 +44,51 @@ public class FireballParticleHandlerSystem extends BaseComponentSystem {
     @In
     ParticleSystemManager particleSystemManager;
 
+    @In
+    FireballParticleLodSystem particleLod;
+
+    @In
+    EntityManager entityManager;
 
     @Priority(EventPriority.PRIORITY_LOW)
     @ReceiveEvent(components = FireballComponent.class)
     public void onFire(FireProjectileEvent event, EntityRef entity, ProjectileActionComponent projectileActionComponent) {
-        ParticleEmitterComponent particleEmitterComponent = entity.getComponent(ParticleEmitterComponent.class);
+        // a pooled fireball is fired again with the emitter and mesh of its prefab, not those its last flight left
+        Prefab prefab = entity.getParentPrefab();
+        ParticleEmitterComponent particleEmitterComponent = copyFromPrefab(prefab, ParticleEmitterComponent.class);
+        if (particleEmitterComponent == null) {
+            particleEmitterComponent = entity.getComponent(ParticleEmitterComponent.class);
+            if (particleEmitterComponent == null) {
+                return;
+            }
+        }
         particleEmitterComponent.enabled = true;
         Vector3f negDirection = new Vector3f(event.getDirection()).normalize().negate();
 
         AttractorAffectorComponent attractorAffector = new AttractorAffectorComponent();
         attractorAffector.origin = entity.getComponent(LocationComponent.class);
-        attractorAffector.attractors.put(new Vector3f(0, 0, 0), -.1f);
-        attractorAffector.attractors.put(new Vector3f(negDirection).mul(.1f), -.3f);
+        attractorAffector.emitter = particleEmitterComponent;
+        attractorAffector.addAttractor(new Vector3f(0, 0, 0), -.1f);
+        attractorAffector.addAttractor(new Vector3f(negDirection).mul(.1f), -.3f);
 
-        entity.addComponent(attractorAffector);
+        // replaces the attractors of an earlier flight
+        entity.addOrSaveComponent(attractorAffector);
 
         entity.removeComponent(ParticleEmitterComponent.class);
         entity.addComponent(particleEmitterComponent);
         entity.send(new ParticleSystemUpdateEvent());
-        entity.removeComponent(MeshComponent.class);
+        MeshComponent mesh = entity.getComponent(MeshComponent.class);
+        if (mesh != null) {
+            entity.removeComponent(MeshComponent.class);
+        } else {
+            mesh = copyFromPrefab(prefab, MeshComponent.class);
+        }
+        particleLod.track(entity, mesh);
+    }
+
+    private <T extends Component> T copyFromPrefab(Prefab prefab, Class<T> type) {
+        T component = prefab != null ? prefab.getComponent(type) : null;
+        return component != null ? entityManager.getComponentLibrary().copy(component) : null;
     }
 
 
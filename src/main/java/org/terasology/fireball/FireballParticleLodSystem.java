@@ -0,0 +1,276 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.fireball;
+
+import org.joml.Vector3f;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.particles.components.ParticleEmitterComponent;
+import org.terasology.engine.particles.events.ParticleSystemUpdateEvent;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.engine.rendering.cameras.Camera;
+import org.terasology.engine.rendering.logic.MeshComponent;
+import org.terasology.engine.rendering.world.WorldRenderer;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.projectile.metrics.Metric;
+import org.terasology.projectile.metrics.ProjectileMetrics;
+import org.terasology.projectile.particleAffectors.AttractorAffectorComponent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scales the particle effects of fireballs in flight with their distance to the camera and a global particle budget.
+ * <p>
+ * Every {@link #updateInterval} seconds each fireball is given a level of detail between 1 within
+ * {@link #fullDetailDistance} and {@link #minDetail} at {@link #impostorDistance}, which scales the spawn rate and
+ * maximum number of particles of its emitter. Below half detail only its strongest attractor is kept. The budget is
+ * handed out nearest first; fireballs beyond the impostor distance, outside the view or left without enough of the
+ * budget stop emitting and show their item mesh instead.
+ */
+@RegisterSystem(RegisterMode.CLIENT)
+@Share(FireballParticleLodSystem.class)
+public class FireballParticleLodSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    /**
+     * Fewest particles worth emitting; fireballs that would get fewer are shown as impostors
+     */
+    private static final int MIN_PARTICLES = 16;
+
+    /**
+     * Relative change of the particle count below which an emitter is left untouched
+     */
+    private static final float HYSTERESIS = 0.1f;
+
+    /**
+     * Maximum number of particles of all fireballs together
+     */
+    public int particleBudget = 4000;
+
+    public float fullDetailDistance = 16;
+
+    public float impostorDistance = 96;
+
+    /**
+     * Level of detail of a fireball just within the impostor distance
+     */
+    public float minDetail = 0.1f;
+
+    /**
+     * Cosine of the angle from the viewing direction beyond which fireballs count as off-screen. Fireballs within the
+     * full detail distance are always considered on-screen, so that turning around does not make them pop.
+     */
+    public float viewConeCos = 0.5f;
+
+    public float updateInterval = 0.2f;
+
+    @In
+    private WorldRenderer worldRenderer;
+
+    @In
+    private ProjectileMetrics metrics;
+
+    private final Map<EntityRef, Fireball> fireballs = new HashMap<>();
+    private final List<Fireball> byDistance = new ArrayList<>();
+    private final Vector3f scratchPosition = new Vector3f();
+    private float sinceUpdate;
+
+    private Metric impostors;
+    private Metric particles;
+
+    @Override
+    public void initialise() {
+        impostors = metrics.gauge(ProjectileMetrics.FIREBALL_IMPOSTORS);
+        particles = metrics.gauge(ProjectileMetrics.FIREBALL_PARTICLES);
+    }
+
+    @Override
+    public void shutdown() {
+        fireballs.clear();
+        byDistance.clear();
+    }
+
+    /**
+     * Puts a fireball that just started emitting under level of detail control. Its current emitter and attractors
+     * are its full detail.
+     *
+     * @param impostor the mesh shown instead of the particles, or null to show nothing
+     */
+    public void track(EntityRef entity, MeshComponent impostor) {
+        ParticleEmitterComponent emitter = entity.getComponent(ParticleEmitterComponent.class);
+        if (emitter == null) {
+            return;
+        }
+        fireballs.put(entity, new Fireball(entity, emitter, entity.getComponent(AttractorAffectorComponent.class),
+                impostor));
+        // decide on the level of detail of new fireballs right away
+        sinceUpdate = updateInterval;
+    }
+
+    @ReceiveEvent(components = FireballComponent.class)
+    public void onFireballDestroyed(BeforeDeactivateComponent event, EntityRef entity, ParticleEmitterComponent emitter) {
+        fireballs.remove(entity);
+    }
+
+    @Override
+    public void update(float delta) {
+        sinceUpdate += delta;
+        if (fireballs.isEmpty() || sinceUpdate < updateInterval) {
+            return;
+        }
+        sinceUpdate = 0;
+        Camera camera = worldRenderer != null ? worldRenderer.getActiveCamera() : null;
+        if (camera == null) {
+            return;
+        }
+        Vector3f eye = camera.getPosition();
+        Vector3f view = camera.getViewingDirection();
+
+        byDistance.clear();
+        for (Iterator<Fireball> it = fireballs.values().iterator(); it.hasNext();) {
+            Fireball fireball = it.next();
+            LocationComponent location = fireball.entity.getComponent(LocationComponent.class);
+            if (!fireball.entity.exists() || location == null) {
+                it.remove();
+                continue;
+            }
+            Vector3f offset = location.getWorldPosition(scratchPosition).sub(eye);
+            fireball.distance = offset.length();
+            boolean visible = fireball.distance <= fullDetailDistance
+                    || offset.dot(view) >= viewConeCos * fireball.distance;
+            fireball.detail = visible ? getDetail(fireball.distance) : 0;
+            byDistance.add(fireball);
+        }
+        byDistance.sort(Comparator.comparingDouble(fireball -> fireball.distance));
+
+        int remaining = particleBudget;
+        int impostorCount = 0;
+        for (Fireball fireball : byDistance) {
+            int wanted = Math.min(remaining, Math.round(fireball.maxParticles * fireball.detail));
+            if (wanted < MIN_PARTICLES) {
+                wanted = 0;
+                impostorCount++;
+            }
+            remaining -= wanted;
+            apply(fireball, wanted);
+        }
+        impostors.set(impostorCount);
+        particles.set(particleBudget - remaining);
+    }
+
+    /**
+     * The level of detail at the given distance from the camera, 0 for an impostor
+     */
+    private float getDetail(float distance) {
+        if (distance <= fullDetailDistance) {
+            return 1;
+        }
+        if (distance >= impostorDistance) {
+            return 0;
+        }
+        return 1 - (1 - minDetail) * (distance - fullDetailDistance) / (impostorDistance - fullDetailDistance);
+    }
+
+    private void apply(Fireball fireball, int maxParticles) {
+        EntityRef entity = fireball.entity;
+        ParticleEmitterComponent emitter = entity.getComponent(ParticleEmitterComponent.class);
+        if (emitter == null) {
+            return;
+        }
+        if (emitter.maxParticles != fireball.appliedMaxParticles) {
+            // someone else changed the emitter, e.g. a hit wore the fireball down, which also lowers its full detail
+            fireball.maxParticles = Math.max(0, fireball.maxParticles + emitter.maxParticles - fireball.appliedMaxParticles);
+            fireball.appliedMaxParticles = emitter.maxParticles;
+        }
+
+        if (maxParticles == 0) {
+            if (!fireball.showingImpostor) {
+                emitter.enabled = false;
+                entity.saveComponent(emitter);
+                if (fireball.impostor != null) {
+                    entity.addOrSaveComponent(fireball.impostor);
+                }
+                fireball.showingImpostor = true;
+            }
+            return;
+        }
+        boolean changed = fireball.showingImpostor
+                || Math.abs(maxParticles - fireball.appliedMaxParticles) > HYSTERESIS * fireball.maxParticles;
+        if (!changed) {
+            return;
+        }
+        if (fireball.showingImpostor) {
+            if (fireball.impostor != null) {
+                entity.removeComponent(MeshComponent.class);
+            }
+            emitter.enabled = true;
+            fireball.showingImpostor = false;
+        }
+        float ratio = fireball.maxParticles > 0 ? (float) maxParticles / fireball.maxParticles : 0;
+        emitter.maxParticles = maxParticles;
+        emitter.spawnRateMin = fireball.spawnRateMin * ratio;
+        emitter.spawnRateMax = fireball.spawnRateMax * ratio;
+        fireball.appliedMaxParticles = maxParticles;
+        entity.saveComponent(emitter);
+
+        AttractorAffectorComponent attractors = entity.getComponent(AttractorAffectorComponent.class);
+        if (attractors != null && fireball.strengths.length > 0) {
+            int count = ratio >= 0.5f ? fireball.strengths.length : 1;
+            if (count != attractors.getAttractorCount()) {
+                attractors.offsets = Arrays.copyOf(fireball.offsets, count * 3);
+                attractors.strengths = Arrays.copyOf(fireball.strengths, count);
+                entity.saveComponent(attractors);
+            }
+        }
+        entity.send(new ParticleSystemUpdateEvent());
+    }
+
+    private static final class Fireball {
+        private final EntityRef entity;
+        private final MeshComponent impostor;
+        private final float spawnRateMin;
+        private final float spawnRateMax;
+        // attractors of full detail, strongest first
+        private final float[] offsets;
+        private final float[] strengths;
+        private int maxParticles;
+
+        private int appliedMaxParticles;
+        private boolean showingImpostor;
+        private float distance;
+        private float detail;
+
+        private Fireball(EntityRef entity, ParticleEmitterComponent emitter, AttractorAffectorComponent attractors,
+                         MeshComponent impostor) {
+            this.entity = entity;
+            this.impostor = impostor;
+            this.spawnRateMin = emitter.spawnRateMin;
+            this.spawnRateMax = emitter.spawnRateMax;
+            this.maxParticles = emitter.maxParticles;
+            this.appliedMaxParticles = emitter.maxParticles;
+
+            int count = attractors != null ? attractors.getAttractorCount() : 0;
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingDouble(i -> -Math.abs(attractors.strengths[i])));
+            offsets = new float[count * 3];
+            strengths = new float[count];
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(attractors.offsets, order[i] * 3, offsets, i * 3, 3);
+                strengths[i] = attractors.strengths[order[i]];
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.grenade;
+
+import org.joml.Vector3fc;
+import org.joml.Vector3i;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Computes the blocks affected by an explosion and how often each is hit. Explosions hit blocks as their rays always
+ * did: {@code rays} rays leave the block the explosion starts in, each hitting the blocks at the points one block
+ * apart from its center up to the reach. Rather than casting random rays, the sampler averages once over all
+ * directions how many of those points fall into every block. The center takes a hit from every ray, and blocks further
+ * out fewer, as they are crossed by fewer rays.
+ * <p>
+ * The blocks are computed once per sampler and visited from the center outwards, so the same explosion always affects
+ * the same blocks in the same order, each exactly once with all its hits, and traversing them does not allocate.
+ */
+public class ExplosionSampler {
+    /**
+     * Distance in blocks from the center of the last point of every ray, the reach of the 4 points of the rays
+     * explosions used to cast.
+     */
+    public static final int DEFAULT_REACH = 3;
+
+    // evenly spread directions the hits of a ray are averaged over
+    private static final int DIRECTIONS = 16384;
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+    private final int rays;
+    private final int reach;
+    // packed x, y, z offsets from the center block, sorted by distance
+    private final int[] offsets;
+    private final float[] hits;
+
+    public ExplosionSampler(int rays) {
+        this(rays, DEFAULT_REACH);
+    }
+
+    public ExplosionSampler(int rays, int reach) {
+        this.rays = rays;
+        this.reach = reach;
+        int width = 2 * reach + 1;
+        int[] counts = countPoints(reach, width);
+        List<int[]> hit = new ArrayList<>();
+        for (int x = -reach; x <= reach; x++) {
+            for (int y = -reach; y <= reach; y++) {
+                for (int z = -reach; z <= reach; z++) {
+                    int count = counts[((x + reach) * width + y + reach) * width + z + reach];
+                    if (count > 0) {
+                        hit.add(new int[] {x, y, z, count});
+                    }
+                }
+            }
+        }
+        // the sort is stable, so blocks at the same distance keep the order of the loops
+        hit.sort(Comparator.comparingInt(block -> block[0] * block[0] + block[1] * block[1] + block[2] * block[2]));
+        this.offsets = new int[hit.size() * 3];
+        this.hits = new float[hit.size()];
+        for (int i = 0; i < hit.size(); i++) {
+            int[] block = hit.get(i);
+            System.arraycopy(block, 0, offsets, i * 3, 3);
+            hits[i] = (float) rays * block[3] / DIRECTIONS;
+        }
+    }
+
+    /**
+     * The number of rays of the explosion, the {@code maxRange} of its {@code ExplosionActionComponent}.
+     */
+    public int getRays() {
+        return rays;
+    }
+
+    public int getReach() {
+        return reach;
+    }
+
+    /**
+     * The number of blocks an explosion affects.
+     */
+    public int size() {
+        return offsets.length / 3;
+    }
+
+    /**
+     * Writes the block an explosion at the given origin starts in into {@code dest}.
+     */
+    public Vector3i getCenter(Vector3fc origin, Vector3i dest) {
+        return dest.set(Math.round(origin.x()), Math.round(origin.y()), Math.round(origin.z()));
+    }
+
+    /**
+     * Writes the position of the block at the given index, {@code [0, size())}, of an explosion centered on the given
+     * block into {@code dest}. Index 0 is the center itself.
+     */
+    public Vector3i getBlock(int index, Vector3i center, Vector3i dest) {
+        int i = index * 3;
+        return dest.set(center.x + offsets[i], center.y + offsets[i + 1], center.z + offsets[i + 2]);
+    }
+
+    /**
+     * The number of ray points falling into the block at the given index on average, the multiple of the damage of
+     * the explosion the block takes.
+     */
+    public float getHits(int index) {
+        return hits[index];
+    }
+
+    /**
+     * Counts the points of one ray in each of the evenly spread directions per block of the cube of the given width
+     */
+    private static int[] countPoints(int reach, int width) {
+        int[] counts = new int[width * width * width];
+        for (int k = 0; k < DIRECTIONS; k++) {
+            double y = 1 - (k + 0.5) * 2 / DIRECTIONS;
+            double ring = Math.sqrt(1 - y * y);
+            double x = Math.cos(k * GOLDEN_ANGLE) * ring;
+            double z = Math.sin(k * GOLDEN_ANGLE) * ring;
+            for (int step = 0; step <= reach; step++) {
+                int bx = (int) Math.round(x * step) + reach;
+                int by = (int) Math.round(y * step) + reach;
+                int bz = (int) Math.round(z * step) + reach;
+                counts[(bx * width + by) * width + bz]++;
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,140 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.grenade;
+
+import org.joml.Vector3f;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.explosives.logic.ExplosionActionComponent;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Work queue resolving chain reactions of explosive blocks iteratively.
+ * <p>
+ * At most {@link #getBudget()} explosions are run per tick, the rest carry over to later ticks. A block is queued at
+ * most once per chain reaction, which also stops two explosive blocks from setting each other off forever. A chain
+ * reaction ends when the queue runs empty.
+ */
+public class ExplosionScheduler {
+    public static final int DEFAULT_BUDGET = 32;
+
+    private final Deque<PendingExplosion> queue = new ArrayDeque<>();
+    private final Set<EntityRef> seen = new HashSet<>();
+    private int budget = DEFAULT_BUDGET;
+
+    private int lastTickExplosions;
+    private int lastTickDeferred;
+    private long lastTickNanos;
+    private long totalExplosions;
+    private long totalDeferred;
+
+    /**
+     * Queues the explosion of an explosive block.
+     *
+     * @return false if the block is already queued or exploded during the current chain reaction
+     */
+    public boolean schedule(EntityRef blockEntity, Vector3f origin) {
+        if (!seen.add(blockEntity)) {
+            return false;
+        }
+        queue.add(new PendingExplosion(blockEntity, origin));
+        return true;
+    }
+
+    /**
+     * Marks a block that explodes without going through the queue, so that it is not set off again by its own chain.
+     */
+    public void markExploded(EntityRef blockEntity) {
+        if (blockEntity.exists()) {
+            seen.add(blockEntity);
+        }
+    }
+
+    /**
+     * Runs queued explosions until the queue is empty or the budget of this tick is spent.
+     */
+    public void process(ExplosionRunner runner) {
+        long start = System.nanoTime();
+        int explosions = 0;
+        while (explosions < budget && !queue.isEmpty()) {
+            PendingExplosion pending = queue.poll();
+            ExplosionActionComponent explosion = pending.blockEntity.getComponent(ExplosionActionComponent.class);
+            if (explosion != null) {
+                runner.explode(explosion, pending.origin, pending.blockEntity);
+                explosions++;
+            }
+        }
+        if (queue.isEmpty()) {
+            seen.clear();
+        }
+        lastTickExplosions = explosions;
+        lastTickDeferred = queue.size();
+        lastTickNanos = System.nanoTime() - start;
+        totalExplosions += explosions;
+        totalDeferred += lastTickDeferred;
+    }
+
+    public void clear() {
+        queue.clear();
+        seen.clear();
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the maximum number of chained explosions run per tick.
+     */
+    public void setBudget(int budget) {
+        this.budget = Math.max(1, budget);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getLastTickExplosions() {
+        return lastTickExplosions;
+    }
+
+    /**
+     * The number of explosions the budget of the last tick left queued for later ticks.
+     */
+    public int getLastTickDeferred() {
+        return lastTickDeferred;
+    }
+
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    public long getTotalExplosions() {
+        return totalExplosions;
+    }
+
+    /**
+     * The sum of {@link #getLastTickDeferred()} over all ticks, so an explosion counts once for every tick it waits.
+     */
+    public long getTotalDeferred() {
+        return totalDeferred;
+    }
+
+    @FunctionalInterface
+    public interface ExplosionRunner {
+        void explode(ExplosionActionComponent explosion, Vector3f origin, EntityRef instigatingBlockEntity);
+    }
+
+    private static final class PendingExplosion {
+        private final EntityRef blockEntity;
+        private final Vector3f origin;
+
+        private PendingExplosion(EntityRef blockEntity, Vector3f origin) {
+            this.blockEntity = blockEntity;
+            this.origin = origin;
+        }
+    }
+}
@@ -26,8 +26,10 @@ import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
 import org.terasology.engine.logic.location.LocationComponent;
 import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
 import org.terasology.engine.utilities.Assets;
 import org.terasology.engine.utilities.random.FastRandom;
 import org.terasology.engine.utilities.random.Random;
@@ -36,12 +38,15 @@ import org.terasology.engine.world.WorldProvider;
 import org.terasology.engine.world.block.Block;
 import org.terasology.engine.world.block.BlockManager;
 import org.terasology.explosives.logic.ExplosionActionComponent;
-import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
-import org.terasology.module.health.events.DoDamageEvent;
-import org.terasology.projectile.HitTargetEvent;
-import org.terasology.projectile.ProjectileActionComponent;
+import org.terasology.projectile.ProjectileAuthoritySystem;
+import org.terasology.projectile.hit.HitBatch;
+import org.terasology.projectile.hit.ProjectileHit;
+import org.terasology.projectile.metrics.Metric;
+import org.terasology.projectile.metrics.ProjectileMetrics;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /*
@@ -50,7 +55,8 @@ import java.util.Optional;
  */
 
 @RegisterSystem(RegisterMode.AUTHORITY)
-public class GrenadeCollisionHandler extends BaseComponentSystem {
+@Share(GrenadeCollisionHandler.class)
+public class GrenadeCollisionHandler extends BaseComponentSystem implements UpdateSubscriberSystem {
 
     @In
     private WorldProvider worldProvider;
@@ -64,8 +70,31 @@ public class GrenadeCollisionHandler extends BaseComponentSystem {
     @In
     private BlockManager blockManager;
 
+    @In
+    private ProjectileMetrics metrics;
+
+    @In
+    private ProjectileAuthoritySystem projectileAuthoritySystem;
+
     private Random random = new FastRandom();
+    // one per number of rays explosions used so far
+    private final Map<Integer, ExplosionSampler> explosionSamplers = new HashMap<>();
+    private ExplosionScheduler explosionScheduler = new ExplosionScheduler();
     private List<Optional<StaticSound>> explosionSounds = Lists.newArrayList();
+    // grenades explode with the default explosion, which is only read
+    private final ExplosionActionComponent grenadeExplosion = new ExplosionActionComponent();
+    private final Vector3f scratchOrigin = new Vector3f();
+    // collects the damage of chained explosions, which run outside the tick of the projectiles
+    private final HitBatch chainBatch = new HitBatch();
+    // reused by every explosion
+    private final Vector3i scratchCenter = new Vector3i();
+    private final Vector3i scratchBlockPos = new Vector3i();
+    private Metric hits;
+    private Metric explosionBlocks;
+    private Metric queueDepth;
+    private Metric chainedExplosions;
+    private Metric deferredExplosions;
+    private Metric queueTime;
 
 
     @Override
@@ -75,53 +104,93 @@ public class GrenadeCollisionHandler extends BaseComponentSystem {
         explosionSounds.add(Assets.getSound("CoreAssets:explode3"));
         explosionSounds.add(Assets.getSound("CoreAssets:explode4"));
         explosionSounds.add(Assets.getSound("CoreAssets:explode5"));
+        hits = metrics.counter(ProjectileMetrics.GRENADE_HITS);
+        explosionBlocks = metrics.sample(ProjectileMetrics.EXPLOSION_BLOCKS);
+        queueDepth = metrics.gauge(ProjectileMetrics.EXPLOSION_QUEUE_DEPTH);
+        chainedExplosions = metrics.counter(ProjectileMetrics.CHAINED_EXPLOSIONS);
+        deferredExplosions = metrics.counter(ProjectileMetrics.DEFERRED_EXPLOSIONS);
+        queueTime = metrics.sample(ProjectileMetrics.EXPLOSION_QUEUE_TIME);
+        projectileAuthoritySystem.getHitResolvers().register(GrenadeComponent.class, this::resolveHit);
     }
 
-    @ReceiveEvent(components = {GrenadeComponent.class})
-    public void onCollision(HitTargetEvent event, EntityRef entity, ProjectileActionComponent projectile) {
-        EntityRef blockEntity = event.getTarget();
-        ExplosionActionComponent explosionActionComponent = new ExplosionActionComponent();
-        doExplosion(explosionActionComponent, event.getTargetLocation(), EntityRef.NULL);
-        entity.destroy();
-        event.consume();
+    @Override
+    public void shutdown() {
+        explosionScheduler.clear();
+        chainBatch.clear();
+        projectileAuthoritySystem.getHitResolvers().unregister(GrenadeComponent.class);
+    }
+
+    /**
+     * The grenade explodes at the target. The damage of the explosion is applied and the grenade destroyed at the end of
+     * the tick.
+     */
+    private void resolveHit(ProjectileHit hit, HitBatch batch) {
+        hits.add(1);
+        doExplosion(grenadeExplosion, hit.getTargetLocation(scratchOrigin), EntityRef.NULL, batch);
+        batch.destroy(hit.getProjectile());
     }
 
     private StaticSound getRandomExplosionSound() {
         return explosionSounds.get(random.nextInt(0, explosionSounds.size() - 1)).get();
     }
 
-    void doExplosion(ExplosionActionComponent explosionComp, Vector3f origin, EntityRef instigatingBlockEntity) {
+    @Override
+    public void update(float delta) {
+        explosionScheduler.process(this::doChainedExplosion);
+        chainBatch.flush(entity -> { });
+        queueDepth.set(explosionScheduler.getQueueDepth());
+        chainedExplosions.add(explosionScheduler.getLastTickExplosions());
+        deferredExplosions.add(explosionScheduler.getLastTickDeferred());
+        if (explosionScheduler.getLastTickExplosions() > 0) {
+            queueTime.record(explosionScheduler.getLastTickNanos());
+        }
+    }
+
+    public ExplosionScheduler getExplosionScheduler() {
+        return explosionScheduler;
+    }
+
+    private void doChainedExplosion(ExplosionActionComponent explosionComp, Vector3f origin,
+                                    EntityRef instigatingBlockEntity) {
+        doExplosion(explosionComp, origin, instigatingBlockEntity, chainBatch);
+    }
+
+    /**
+     * Explodes at the given origin, queueing damage on the batch for every block the {@link ExplosionSampler} of the
+     * {@code maxRange} of the explosion hits: {@code damageAmount} times the number of hits. Explosive blocks caught in
+     * the blast are queued on the {@link ExplosionScheduler} instead of exploding right away.
+     */
+    void doExplosion(ExplosionActionComponent explosionComp, Vector3f origin, EntityRef instigatingBlockEntity,
+                     HitBatch batch) {
+        explosionScheduler.markExploded(instigatingBlockEntity);
         EntityBuilder builder = entityManager.newBuilder("CoreAssets:smokeExplosion");
         builder.getComponent(LocationComponent.class).setWorldPosition(origin);
         EntityRef smokeEntity = builder.build();
 
         smokeEntity.send(new PlaySoundEvent(getRandomExplosionSound(), 1f));
 
-        Vector3i blockPos = new Vector3i();
-        for (int i = 0; i < explosionComp.maxRange; i++) {
-            Vector3f direction = random.nextVector3f(1.0f, new Vector3f());
-
-            for (int j = 0; j < 4; j++) {
-                Vector3f target = new Vector3f(origin);
-
-                target.x += direction.x * j;
-                target.y += direction.y * j;
-                target.z += direction.z * j;
-                blockPos.set((int) target.x, (int) target.y, (int) target.z);
-                Block currentBlock = worldProvider.getBlock(blockPos);
-
-                /* PHYSICS */
-                if (currentBlock.isDestructible()) {
-                    EntityRef blockEntity = blockEntityRegistry.getEntityAt(blockPos);
-                    // allow explosions to chain together,  but do not chain on the instigating block
-                    if (!blockEntity.equals(instigatingBlockEntity) && blockEntity.hasComponent(ExplosionActionComponent.class)) {
-                        doExplosion(blockEntity.getComponent(ExplosionActionComponent.class), new Vector3f(blockPos),
-                            blockEntity);
-                    } else {
-                        blockEntity.send(new DoDamageEvent(explosionComp.damageAmount, explosionComp.damageType));
+        ExplosionSampler explosionSampler = explosionSamplers.computeIfAbsent(explosionComp.maxRange,
+            ExplosionSampler::new);
+        Vector3i center = explosionSampler.getCenter(origin, scratchCenter);
+        Vector3i blockPos = scratchBlockPos;
+        for (int i = 0; i < explosionSampler.size(); i++) {
+            explosionSampler.getBlock(i, center, blockPos);
+            Block currentBlock = worldProvider.getBlock(blockPos);
+
+            /* PHYSICS */
+            if (currentBlock.isDestructible()) {
+                EntityRef blockEntity = blockEntityRegistry.getEntityAt(blockPos);
+                // allow explosions to chain together,  but do not chain on the instigating block
+                if (!blockEntity.equals(instigatingBlockEntity) && blockEntity.hasComponent(ExplosionActionComponent.class)) {
+                    explosionScheduler.schedule(blockEntity, new Vector3f(blockPos));
+                } else {
+                    int damage = Math.round(explosionComp.damageAmount * explosionSampler.getHits(i));
+                    if (damage > 0) {
+                        batch.damage(blockEntity, damage, explosionComp.damageType);
                     }
                 }
             }
         }
+        explosionBlocks.record(explosionSampler.size());
     }
 }
@@ -0,0 +1,93 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.block.BlockComponent;
+import org.terasology.engine.world.block.BlockRegistrationListener;
+import org.terasology.engine.world.block.family.BlockFamily;
+import org.terasology.module.health.components.HealthComponent;
+import org.terasology.module.health.events.DoDamageEvent;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers for every block type whether projectiles can damage it.
+ * <p>
+ * Blocks only get a {@link HealthComponent} once they are damaged. To find out whether a block without one can be
+ * damaged at all, the first hit on a block type probes it with a {@link DoDamageEvent} of 0 damage. If no health
+ * appears, hits on that type are resolved as indestructible from then on without any event. Otherwise the health the
+ * probe produced is kept as a template and copied onto the next blocks of the type directly. Entities that are not
+ * blocks are probed every time.
+ * <p>
+ * Registered with the block manager, the cache is cleared whenever block families are registered or reloaded.
+ */
+public class BlockDestructibilityCache implements BlockRegistrationListener {
+    private final Map<Block, HealthComponent> templates = new HashMap<>();
+    private final Set<Block> indestructible = new HashSet<>();
+    private int probes;
+
+    /**
+     * Makes sure the target has a {@link HealthComponent} if it can be damaged.
+     *
+     * @param damageType the damage type a probe is sent with
+     * @return the health of the target, or null if it cannot be damaged
+     */
+    public HealthComponent ensureHealth(EntityRef target, Prefab damageType) {
+        HealthComponent health = target.getComponent(HealthComponent.class);
+        if (health != null) {
+            return health;
+        }
+        BlockComponent blockComponent = target.getComponent(BlockComponent.class);
+        Block block = blockComponent != null ? blockComponent.getBlock() : null;
+        if (block == null) {
+            return probe(target, damageType);
+        }
+        if (indestructible.contains(block)) {
+            return null;
+        }
+        HealthComponent template = templates.get(block);
+        if (template != null) {
+            health = new HealthComponent();
+            health.copyFrom(template);
+            return target.addComponent(health);
+        }
+        health = probe(target, damageType);
+        if (health == null) {
+            indestructible.add(block);
+            return null;
+        }
+        template = new HealthComponent();
+        template.copyFrom(health);
+        templates.put(block, template);
+        return health;
+    }
+
+    /**
+     * Number of {@link DoDamageEvent} probes sent since the cache was created
+     */
+    public int getProbes() {
+        return probes;
+    }
+
+    public void clear() {
+        templates.clear();
+        indestructible.clear();
+    }
+
+    @Override
+    public void onBlockFamilyRegistered(BlockFamily family) {
+        clear();
+    }
+
+    private HealthComponent probe(EntityRef target, Prefab damageType) {
+        probes++;
+        target.send(new DoDamageEvent(0, damageType));
+        return target.getComponent(HealthComponent.class);
+    }
+}
@@ -16,17 +16,24 @@
 package org.terasology.projectile;
 
 import org.joml.Vector3f;
+import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.gestalt.entitysystem.event.Event;
 
 public class FireProjectileEvent implements Event {
     private Vector3f origin;
     private Vector3f direction;
+    private EntityRef instigator = EntityRef.NULL;
 
     public FireProjectileEvent(Vector3f origin, Vector3f direction) {
         this.origin = origin;
         this.direction = direction;
     }
 
+    public FireProjectileEvent(Vector3f origin, Vector3f direction, EntityRef instigator) {
+        this(origin, direction);
+        this.instigator = instigator;
+    }
+
     public Vector3f getOrigin() {
         return origin;
     }
@@ -34,4 +41,11 @@ public class FireProjectileEvent implements Event {
     public Vector3f getDirection() {
         return direction;
     }
+
+    /**
+     * @return the entity which fired the projectile, or {@link EntityRef#NULL} if unknown
+     */
+    public EntityRef getInstigator() {
+        return instigator;
+    }
 }
@@ -0,0 +1,182 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.projectile.util.LongIntMap;
+
+import java.util.Arrays;
+
+/**
+ * Limits how fast every shooter fires every item, following {@link ProjectileActionComponent#projectilesPerSecond},
+ * {@link ProjectileActionComponent#burstSize} and {@link ProjectileActionComponent#magazineSize}.
+ * <p>
+ * The rate is enforced with the generic cell rate algorithm: every shooter and item pair keeps the time its next shot
+ * is due, which moves on by one interval per shot, and a shot is allowed if it comes no more than
+ * {@code burstSize - 1} intervals early. With a magazine, the pair also counts the rounds left; an empty magazine
+ * reloads in {@link ProjectileActionComponent#reloadTime} seconds, and a partially used one is full again after the
+ * item was not fired for as long.
+ * <p>
+ * Pairs are keyed by the ids of the shooter and the item in a primitive map, their state is kept in parallel arrays.
+ * Pairs whose state has run back to that of a pair never fired are dropped by {@link #expire(long)}. All methods are
+ * synchronized, so the limiter can be shared by threads.
+ */
+public class FireRateLimiter {
+    private static final int NONE = -1;
+
+    private final LongIntMap slots = new LongIntMap(NONE);
+    private final long expiry;
+    // kept in a field so that expiring does not allocate a capturing lambda
+    private final LongIntMap.EntryPredicate expired = this::isExpired;
+    private long expireTime;
+
+    private double[] nextShot = new double[0];
+    private long[] lastShot = new long[0];
+    private long[] reloadTime = new long[0];
+    private int[] roundsLeft = new int[0];
+    private int[] rejected = new int[0];
+    private int[] free = new int[0];
+    private int freeCount;
+    private int slotCount;
+
+    private long acceptedShots;
+    private long rejectedShots;
+
+    /**
+     * @param expiry milliseconds a pair is kept after it could fire as if it never had
+     */
+    public FireRateLimiter(long expiry) {
+        this.expiry = expiry;
+    }
+
+    /**
+     * Fires the item if the shooter may, at the given game time in milliseconds.
+     *
+     * @return whether the shot is allowed
+     */
+    public synchronized boolean tryFire(EntityRef shooter, EntityRef item, ProjectileActionComponent action, long now) {
+        if (action.projectilesPerSecond <= 0) {
+            rejectedShots++;
+            return false;
+        }
+        long key = key(shooter, item);
+        int slot = slots.get(key);
+        if (slot == NONE) {
+            slot = allocate(key, now, action);
+        }
+        double interval = 1000 / action.projectilesPerSecond;
+        boolean magazine = action.magazineSize > 0;
+        if (magazine && roundsLeft[slot] < action.magazineSize && now - lastShot[slot] >= reloadTime[slot]) {
+            roundsLeft[slot] = action.magazineSize;
+        }
+        double tolerance = (Math.max(1, action.burstSize) - 1) * interval;
+        if (now < nextShot[slot] - tolerance || magazine && roundsLeft[slot] == 0) {
+            rejected[slot]++;
+            rejectedShots++;
+            return false;
+        }
+        nextShot[slot] = Math.max(nextShot[slot], now) + interval;
+        lastShot[slot] = now;
+        reloadTime[slot] = (long) (Math.max(0, action.reloadTime) * 1000);
+        if (magazine) {
+            roundsLeft[slot]--;
+        }
+        acceptedShots++;
+        return true;
+    }
+
+    /**
+     * Rounds left in the magazine of the item of the shooter, or -1 if it has no magazine. The magazine is reported
+     * full if it will have reloaded by the given time.
+     */
+    public synchronized int getRoundsLeft(EntityRef shooter, EntityRef item, ProjectileActionComponent action, long now) {
+        if (action.magazineSize <= 0) {
+            return -1;
+        }
+        int slot = slots.get(key(shooter, item));
+        if (slot == NONE || now - lastShot[slot] >= reloadTime[slot]) {
+            return action.magazineSize;
+        }
+        return Math.min(roundsLeft[slot], action.magazineSize);
+    }
+
+    /**
+     * Number of shots of the shooter with the item that were rejected since the pair was last dropped.
+     */
+    public synchronized int getRejectedShots(EntityRef shooter, EntityRef item) {
+        int slot = slots.get(key(shooter, item));
+        return slot != NONE ? rejected[slot] : 0;
+    }
+
+    public synchronized long getRejectedShots() {
+        return rejectedShots;
+    }
+
+    public synchronized long getAcceptedShots() {
+        return acceptedShots;
+    }
+
+    /**
+     * Number of shooter and item pairs currently kept.
+     */
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    /**
+     * Drops the pairs that, at the given time, have been able to fire a full burst and magazine for the expiry.
+     */
+    public synchronized void expire(long now) {
+        expireTime = now;
+        slots.removeIf(expired);
+    }
+
+    private boolean isExpired(long key, int slot) {
+        long idle = expireTime - lastShot[slot];
+        if (expireTime - nextShot[slot] < expiry || idle < reloadTime[slot] + expiry) {
+            return false;
+        }
+        free[freeCount++] = slot;
+        return true;
+    }
+
+    public synchronized void clear() {
+        slots.clear();
+        freeCount = 0;
+        slotCount = 0;
+        acceptedShots = 0;
+        rejectedShots = 0;
+    }
+
+    private int allocate(long key, long now, ProjectileActionComponent action) {
+        int slot;
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            if (slotCount == nextShot.length) {
+                int capacity = Math.max(16, slotCount * 2);
+                nextShot = Arrays.copyOf(nextShot, capacity);
+                lastShot = Arrays.copyOf(lastShot, capacity);
+                reloadTime = Arrays.copyOf(reloadTime, capacity);
+                roundsLeft = Arrays.copyOf(roundsLeft, capacity);
+                rejected = Arrays.copyOf(rejected, capacity);
+                free = Arrays.copyOf(free, capacity);
+            }
+            slot = slotCount++;
+        }
+        nextShot[slot] = now;
+        lastShot[slot] = Long.MIN_VALUE / 2;
+        reloadTime[slot] = 0;
+        roundsLeft[slot] = Math.max(0, action.magazineSize);
+        rejected[slot] = 0;
+        slots.put(key, slot);
+        return slot;
+    }
+
+    /**
+     * Packs the ids of the shooter and the item into one key. Entity ids stay far below 2^32, so the key is unique.
+     */
+    private static long key(EntityRef shooter, EntityRef item) {
+        return shooter.getId() << 32 | item.getId() & 0xFFFFFFFFL;
+    }
+}
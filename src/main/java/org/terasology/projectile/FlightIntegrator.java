@@ -0,0 +1,22 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+/**
+ * Schemes stepping projectiles under drag, see {@link ProjectileSimulationSettings#drag}. Each substep evaluates the
+ * acceleration once, twice for {@link #MIDPOINT}.
+ */
+public enum FlightIntegrator {
+    /**
+     * Moves with the velocity at the start of the substep, like the simulation without drag. First order.
+     */
+    EULER,
+    /**
+     * Updates the velocity first and moves with the updated one. First order, but stable under strong drag.
+     */
+    SEMI_IMPLICIT_EULER,
+    /**
+     * Second order Runge-Kutta: moves with the velocity half way through the substep.
+     */
+    MIDPOINT
+}
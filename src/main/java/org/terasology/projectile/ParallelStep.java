@@ -0,0 +1,35 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Prepares the step of disjoint slot ranges of a {@link ProjectileStore} on a fork-join pool.
+ */
+class ParallelStep extends RecursiveAction {
+    /**
+     * Number of slots below which a range is prepared on the current thread.
+     */
+    static final int THRESHOLD = 1024;
+
+    private final ProjectileStore store;
+    private final int from;
+    private final int to;
+
+    ParallelStep(ProjectileStore store, int from, int to) {
+        this.store = store;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= THRESHOLD) {
+            store.prepareStep(from, to, ProjectileAuthoritySystem.G, ProjectileAuthoritySystem.TERMINAL_VELOCITY);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new ParallelStep(store, from, middle), new ParallelStep(store, middle, to));
+    }
+}
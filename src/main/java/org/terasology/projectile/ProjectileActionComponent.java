@@ -56,6 +56,36 @@ public class ProjectileActionComponent implements Component<ProjectileActionComp
      */
     public float projectilesPerSecond = 1.0f;
 
+    /**
+     * How many projectiles can be fired in quick succession after the item was not fired for a while, at most
+     * {@link #projectilesPerSecond} on average
+     */
+    public int burstSize = 1;
+
+    /**
+     * How many projectiles can be fired before the item has to reload. 0 never reloads.
+     */
+    public int magazineSize = 0;
+
+    /**
+     * Seconds an empty magazine takes to reload. A partially used magazine is full again after the item was not fired
+     * for as long.
+     */
+    public float reloadTime = 0;
+
+    /**
+     * Radius within which the projectile collides with other projectiles, if projectile collisions are enabled.
+     * 0 disables collisions with other projectiles.
+     */
+    public float collisionRadius = 0.25f;
+
+    /**
+     * Number of spent projectile entities kept for reuse by the prefab of this item. Only applies to projectiles
+     * which are not reusable. 0 destroys every spent projectile. Parked projectiles are reset to their prefab, see
+     * {@link ProjectilePool}.
+     */
+    public int poolSize = 0;
+
     public Prefab damageType = EngineDamageTypes.PHYSICAL.get();
 
     @Override
@@ -69,6 +99,11 @@ public class ProjectileActionComponent implements Component<ProjectileActionComp
         this.maxDistance = other.maxDistance;
         this.damageAmount = other.damageAmount;
         this.projectilesPerSecond = other.projectilesPerSecond;
+        this.burstSize = other.burstSize;
+        this.magazineSize = other.magazineSize;
+        this.reloadTime = other.reloadTime;
+        this.collisionRadius = other.collisionRadius;
+        this.poolSize = other.poolSize;
         this.damageType = other.damageType;
     }
 }
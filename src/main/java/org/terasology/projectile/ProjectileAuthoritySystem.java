@@ -17,31 +17,61 @@ package org.terasology.projectile;
 
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.engine.core.Time;
 import org.terasology.engine.entitySystem.entity.EntityManager;
 import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
+import org.terasology.engine.entitySystem.prefab.Prefab;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
 import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.characters.CharacterComponent;
+import org.terasology.engine.logic.characters.CharacterMovementComponent;
 import org.terasology.engine.logic.common.ActivateEvent;
 import org.terasology.engine.logic.inventory.events.DropItemEvent;
 import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.network.ClientComponent;
+import org.terasology.engine.network.events.ConnectedEvent;
 import org.terasology.engine.physics.CollisionGroup;
 import org.terasology.engine.physics.HitResult;
 import org.terasology.engine.physics.Physics;
 import org.terasology.engine.physics.StandardCollisionGroup;
 import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.engine.world.block.BlockManager;
 import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
 import org.terasology.module.health.components.HealthComponent;
-import org.terasology.module.health.events.DoDamageEvent;
 import org.terasology.module.inventory.systems.InventoryManager;
 import org.terasology.module.inventory.systems.InventoryUtils;
+import org.terasology.projectile.collision.BatchRayCaster;
+import org.terasology.projectile.collision.CharacterHistory;
+import org.terasology.projectile.collision.LagCompensatedRayCaster;
+import org.terasology.projectile.collision.LatencyEstimator;
+import org.terasology.projectile.collision.ParallelRayCast;
+import org.terasology.projectile.collision.PhysicsBatchRayCaster;
+import org.terasology.projectile.collision.PingLatencyEstimator;
+import org.terasology.projectile.collision.RaySegmentBatch;
+import org.terasology.projectile.hit.HitBatch;
+import org.terasology.projectile.hit.HitResolverRegistry;
+import org.terasology.projectile.hit.ProjectileHit;
+import org.terasology.projectile.metrics.Metric;
+import org.terasology.projectile.metrics.ProjectileMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 @RegisterSystem(RegisterMode.AUTHORITY)
-public class ProjectileAuthoritySystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+@Share({ProjectileAuthoritySystem.class, ProjectileSpatialIndex.class})
+public class ProjectileAuthoritySystem extends BaseComponentSystem implements UpdateSubscriberSystem, ProjectileSpatialIndex {
     private static final Logger logger = LoggerFactory.getLogger(ProjectileAuthoritySystem.class);
     public static final int TERMINAL_VELOCITY = 40;
     public static final float G = 1f;
@@ -57,49 +87,213 @@ public class ProjectileAuthoritySystem extends BaseComponentSystem implements Up
     @In
     private Time time;
 
+    @In
+    private ProjectileMetrics metrics;
+
+    @In
+    private BlockManager blockManager;
+
+    /**
+     * Added to the length of ray casts so that they are inclusive of the endpoint
+     */
+    private static final float RAY_PADDING = .01f;
+
+    /**
+     * Projectiles a budgeted tick steps at least, so that a single slow tick cannot stall the simulation
+     */
+    private static final int MIN_STEPS_PER_TICK = 64;
+
+    /**
+     * Collider of characters without a {@link CharacterMovementComponent}
+     */
+    private static final float DEFAULT_CHARACTER_RADIUS = 0.3f;
+    private static final float DEFAULT_CHARACTER_HEIGHT = 1.6f;
+
+    /**
+     * Milliseconds the fire rate of a shooter and item is remembered once it no longer limits them
+     */
+    private static final long FIRE_RATE_EXPIRY = 5000;
+
     private CollisionGroup[] filter = {StandardCollisionGroup.DEFAULT, StandardCollisionGroup.WORLD, StandardCollisionGroup.CHARACTER};
-    private float lastTime;
+    private final FireRateLimiter fireRateLimiter = new FireRateLimiter(FIRE_RATE_EXPIRY);
+    private final BlockDestructibilityCache destructibility = new BlockDestructibilityCache();
+    private final HitResolverRegistry hitResolvers = new HitResolverRegistry();
+    private final HitBatch hitBatch = new HitBatch();
+    private final Consumer<EntityRef> sendDeactivation = entity -> entity.send(new DeactivateProjectileEvent());
+    private final Consumer<EntityRef> dropProjectile = this::dropProjectile;
+    private float expiryTimer;
+
+    private final ProjectileStore store = new ProjectileStore();
+    private final ProjectileSimulationSettings settings = new ProjectileSimulationSettings();
+    private float syncTimer;
+    private boolean writingBack;
+    // the flight model clients were last sent
+    private ProjectileFlightModelEvent flightModel;
+
+    private final RaySegmentBatch segments = new RaySegmentBatch();
+    private final ProjectileContacts contacts = new ProjectileContacts();
+    private BatchRayCaster rayCaster;
+    private ForkJoinPool workerPool;
+    private ProjectilePool pool;
+    private CharacterHistory characterHistory;
+    private LagCompensatedRayCaster lagCompensatedRayCaster;
+    private boolean warnedSerialRayCasts;
+    private boolean warnedHistoryOverflow;
+    private LatencyEstimator latencyEstimator = new PingLatencyEstimator();
+    private WindField windField = WindField.CALM;
+    private final List<ProjectileUpdateListener> updateListeners = new ArrayList<>();
+
+    // average cost of stepping one projectile, in nanoseconds, as measured by budgeted ticks
+    private float stepCost;
+    private float[] observers = new float[3 * 8];
+
+    private Metric liveProjectiles;
+    private Metric spawnedProjectiles;
+    private Metric despawnedProjectiles;
+    private Metric integrationTime;
+    private Metric rayCastTime;
+    private Metric dispatchTime;
+    private Metric rayCasts;
+    private Metric rejectedShots;
+    private Metric historyRecordTime;
+    private Metric historyCharacters;
+    private Metric historyOverflow;
+    private Metric historyMemory;
+
+    // scratch state reused by every tick so that steady-state flight does not allocate
+    private final ProjectileUpdateEvent updateEvent = new ProjectileUpdateEvent();
+    private final Vector3f scratchPosition = new Vector3f();
+    private final Vector3f scratchVelocity = new Vector3f();
+    private final Vector3f scratchOrientation = new Vector3f();
+    private final Vector3f scratchCrossProduct = new Vector3f();
+    private final Vector3f scratchDirection = new Vector3f();
+    private final Vector3f scratchMoved = new Vector3f();
+    private final Quaternionf scratchRotation = new Quaternionf();
+    private final ProjectileHit hit = new ProjectileHit();
+    // the hit whose HitTargetEvent is being sent
+    private int eventHitSlot = -1;
+    private HealthComponent eventTargetHealth;
 
     @Override
     public void initialise() {
+        if (rayCaster == null) {
+            rayCaster = new PhysicsBatchRayCaster(physicsRenderer);
+        }
+        pool = new ProjectilePool(entityManager);
+        blockManager.subscribe(destructibility);
+        liveProjectiles = metrics.gauge(ProjectileMetrics.LIVE_PROJECTILES);
+        spawnedProjectiles = metrics.counter(ProjectileMetrics.SPAWNED_PROJECTILES);
+        despawnedProjectiles = metrics.counter(ProjectileMetrics.DESPAWNED_PROJECTILES);
+        integrationTime = metrics.sample(ProjectileMetrics.INTEGRATION_TIME);
+        rayCastTime = metrics.sample(ProjectileMetrics.RAY_CAST_TIME);
+        dispatchTime = metrics.sample(ProjectileMetrics.DISPATCH_TIME);
+        rayCasts = metrics.sample(ProjectileMetrics.RAY_CASTS);
+        rejectedShots = metrics.counter(ProjectileMetrics.REJECTED_SHOTS);
+        historyRecordTime = metrics.sample(ProjectileMetrics.HISTORY_RECORD_TIME);
+        historyCharacters = metrics.gauge(ProjectileMetrics.HISTORY_CHARACTERS);
+        historyOverflow = metrics.gauge(ProjectileMetrics.HISTORY_OVERFLOW);
+        historyMemory = metrics.gauge(ProjectileMetrics.HISTORY_MEMORY);
     }
 
     @Override
     public void shutdown() {
+        store.clear();
+        segments.clear();
+        pool.clear();
+        fireRateLimiter.clear();
+        hitBatch.clear();
+        updateListeners.clear();
+        destructibility.clear();
+        blockManager.unsubscribe(destructibility);
+        if (characterHistory != null) {
+            characterHistory.clear();
+        }
+        if (workerPool != null) {
+            workerPool.shutdown();
+            workerPool = null;
+        }
+    }
+
+    /**
+     * Sends the flight model to a connecting client, which predicts the shots of its player with it
+     */
+    @ReceiveEvent(components = ClientComponent.class)
+    public void onClientConnected(ConnectedEvent event, EntityRef client) {
+        if (flightModel == null) {
+            flightModel = new ProjectileFlightModelEvent(settings);
+        }
+        client.send(flightModel);
     }
 
     @ReceiveEvent
     public void onActivate(ActivateEvent event, EntityRef entity, ProjectileActionComponent projectileActionComponent) {
-        if (time.getGameTime() > lastTime + 1.0f / projectileActionComponent.projectilesPerSecond) {
-            int slot = InventoryUtils.getSlotWithItem(event.getInstigator(), entity);
-            EntityRef inventoryEntity = inventoryManager.removeItem(event.getInstigator(), event.getInstigator(),
+        if (!fireRateLimiter.tryFire(event.getInstigator(), entity, projectileActionComponent, time.getGameTimeInMs())) {
+            rejectedShots.add(1);
+            return;
+        }
+        int slot = InventoryUtils.getSlotWithItem(event.getInstigator(), entity);
+        Prefab prefab = entity.getParentPrefab();
+        EntityRef inventoryEntity;
+        if (projectileActionComponent.poolSize > 0 && !projectileActionComponent.reusable && prefab != null) {
+            pool.prewarm(prefab, projectileActionComponent.poolSize);
+            inventoryEntity = pool.acquire(prefab);
+            ProjectileActionComponent pooledAction = inventoryEntity.getComponent(ProjectileActionComponent.class);
+            if (pooledAction != null) {
+                pooledAction.copyFrom(projectileActionComponent);
+            }
+            inventoryManager.removeItem(event.getInstigator(), event.getInstigator(), slot, true, 1);
+        } else {
+            inventoryEntity = inventoryManager.removeItem(event.getInstigator(), event.getInstigator(),
                 slot, false, 1);
-            lastTime = time.getGameTime();
-            inventoryEntity.send(new FireProjectileEvent(event.getOrigin(), event.getDirection()));
         }
+        inventoryEntity.send(new FireProjectileEvent(event.getOrigin(), event.getDirection(), event.getInstigator()));
     }
 
     @ReceiveEvent
     public void onFire(FireProjectileEvent event, EntityRef entity, ProjectileActionComponent projectileActionComponent) {
-        ProjectileMotionComponent projectileMotionComponent = new ProjectileMotionComponent();
-        projectileMotionComponent.direction = new Vector3f(event.getDirection());
-        projectileMotionComponent.currentVelocity = new Vector3f(event.getDirection()).mul(projectileActionComponent.initialVelocity);
+        ProjectileMotionComponent projectileMotionComponent = pool.getMotion(entity);
+        if (projectileMotionComponent == null) {
+            projectileMotionComponent = new ProjectileMotionComponent();
+        }
+        projectileMotionComponent.direction = set(projectileMotionComponent.direction, event.getDirection());
+        projectileMotionComponent.currentVelocity = set(projectileMotionComponent.currentVelocity, event.getDirection())
+            .mul(projectileActionComponent.initialVelocity);
+        projectileMotionComponent.distanceTravelled = 0;
         Vector3f pos = event.getOrigin();
-        LocationComponent location = new LocationComponent(pos);
+        projectileMotionComponent.launchPosition = set(projectileMotionComponent.launchPosition, pos);
+        projectileMotionComponent.launchVelocity = set(projectileMotionComponent.launchVelocity,
+            projectileMotionComponent.currentVelocity);
+        projectileMotionComponent.launchTime = time.getGameTimeInMs();
+        projectileMotionComponent.shooter = event.getInstigator();
+        projectileMotionComponent.shooterLatency = settings.lagCompensation && event.getInstigator().exists()
+            ? latencyEstimator.getLatency(event.getInstigator()) : 0;
+        LocationComponent location = pool.getLocation(entity);
+        if (location == null) {
+            location = new LocationComponent(pos);
+        } else {
+            location.setWorldPosition(pos);
+        }
         location.setWorldScale(projectileActionComponent.iconScale);
-        location.setWorldRotation(getRotationQuaternion(projectileActionComponent.initialOrientation, new Vector3f(event.getDirection())));
+        location.setWorldRotation(getRotationQuaternion(projectileActionComponent.initialOrientation, event.getDirection(),
+            new Vector3f(), new Quaternionf()));
         entity.addOrSaveComponent(location);
         entity.addComponent(projectileMotionComponent);
         entity.saveComponent(projectileActionComponent);
     }
 
+    /**
+     * Copies the source into the destination, allocating the destination if there is none yet
+     */
+    private static Vector3f set(Vector3f dest, Vector3fc source) {
+        return dest != null ? dest.set(source) : new Vector3f(source);
+    }
+
     /**
      * Rotates the projectile in the direction of motion
      */
-    private Quaternionf getRotationQuaternion(Vector3f initialDir, Vector3f finalDir) {
+    static Quaternionf getRotationQuaternion(Vector3f initialDir, Vector3f finalDir, Vector3f crossProduct,
+                                     Quaternionf rotation) {
         // rotates the entity to face in the direction of pointer
-        Quaternionf rotation = new Quaternionf();
-        Vector3f crossProduct = new Vector3f();
         initialDir.cross(finalDir, crossProduct);
         rotation.x = crossProduct.x;
         rotation.y = crossProduct.y;
@@ -110,83 +304,642 @@ public class ProjectileAuthoritySystem extends BaseComponentSystem implements Up
         return rotation;
     }
 
+    /**
+     * Registers projectiles entering flight, including those loaded with the world, with the simulation store
+     */
+    @ReceiveEvent
+    public void onProjectileActivated(OnActivatedComponent event, EntityRef entity, ProjectileMotionComponent projectileMotion,
+                                      ProjectileActionComponent projectile, LocationComponent location) {
+        Vector3f velocity = projectileMotion.currentVelocity != null ? projectileMotion.currentVelocity : new Vector3f();
+        Vector3f position = location.getWorldPosition(new Vector3f());
+        long now = time.getGameTimeInMs();
+        if (projectileMotion.launchPosition != null && projectileMotion.launchVelocity != null) {
+            float flightTime = Math.max(0, (now - projectileMotion.launchTime) / 1000f);
+            store.add(entity, position, velocity, projectileMotion.distanceTravelled, projectile,
+                projectileMotion.launchPosition, projectileMotion.launchVelocity, flightTime);
+            if (settings.compactReplication) {
+                entity.send(new ProjectileSpawnEvent(new Vector3f(projectileMotion.launchPosition),
+                    new Vector3f(projectileMotion.launchVelocity), projectileMotion.launchTime, entity.getParentPrefab()));
+            }
+        } else {
+            store.add(entity, position, velocity, projectileMotion.distanceTravelled, projectile);
+            if (settings.compactReplication) {
+                entity.send(new ProjectileSpawnEvent(position, new Vector3f(velocity), now, entity.getParentPrefab()));
+            }
+        }
+        int slot = store.getSlot(entity);
+        ProjectileUpdateSubscriptionComponent subscription =
+            entity.getComponent(ProjectileUpdateSubscriptionComponent.class);
+        if (subscription != null) {
+            store.setUpdateSubscription(slot, Math.max(0, subscription.interval), subscription.sendEvent);
+        }
+        if (projectileMotion.shooter != null && projectileMotion.shooter.exists()) {
+            store.setShooter(slot, projectileMotion.shooter, projectileMotion.shooterLatency);
+        }
+        spawnedProjectiles.add(1);
+    }
+
+    @ReceiveEvent
+    public void onProjectileChanged(OnChangedComponent event, EntityRef entity, ProjectileMotionComponent projectileMotion,
+                                    ProjectileActionComponent projectile) {
+        store.updateParameters(entity, projectile);
+    }
+
+    /**
+     * Takes over a velocity another system saved into the {@link ProjectileMotionComponent} of a projectile in flight,
+     * e.g. to home in on a target.
+     */
+    @ReceiveEvent
+    public void onProjectileMotionChanged(OnChangedComponent event, EntityRef entity,
+                                          ProjectileMotionComponent projectileMotion) {
+        int slot = store.getSlot(entity);
+        if (slot == -1 || projectileMotion.currentVelocity == null) {
+            return;
+        }
+        store.setVelocity(slot, projectileMotion.currentVelocity);
+        if (settings.compactReplication) {
+            correct(slot, entity);
+        }
+    }
+
+    /**
+     * Takes over a position another system saved into the {@link LocationComponent} of a projectile in flight. The
+     * saves of {@link #writeBack} are skipped, they only copy the store.
+     */
+    @ReceiveEvent
+    public void onProjectileMoved(OnChangedComponent event, EntityRef entity, LocationComponent location) {
+        if (writingBack) {
+            return;
+        }
+        // receives the changes of every location, most of them are not projectiles
+        int slot = store.getSlot(entity);
+        if (slot == -1) {
+            return;
+        }
+        store.setPosition(slot, location.getWorldPosition(scratchMoved));
+        if (settings.compactReplication) {
+            correct(slot, entity);
+        }
+    }
+
+    @ReceiveEvent
+    public void onProjectileDeactivated(BeforeDeactivateComponent event, EntityRef entity, ProjectileMotionComponent projectileMotion) {
+        int slot = store.getSlot(entity);
+        if (settings.compactReplication && slot != -1) {
+            entity.send(new ProjectileCorrectionEvent(store.getPosition(slot, new Vector3f()),
+                store.getVelocity(slot, new Vector3f()), time.getGameTimeInMs(), false));
+        }
+        if (store.remove(entity)) {
+            despawnedProjectiles.add(1);
+        }
+    }
+
+    @ReceiveEvent
+    public void onUpdateSubscribed(OnActivatedComponent event, EntityRef entity,
+                                   ProjectileUpdateSubscriptionComponent subscription) {
+        updateSubscription(entity, subscription);
+    }
+
+    @ReceiveEvent
+    public void onUpdateSubscriptionChanged(OnChangedComponent event, EntityRef entity,
+                                           ProjectileUpdateSubscriptionComponent subscription) {
+        updateSubscription(entity, subscription);
+    }
+
+    @ReceiveEvent
+    public void onUpdateUnsubscribed(BeforeDeactivateComponent event, EntityRef entity,
+                                     ProjectileUpdateSubscriptionComponent subscription) {
+        updateSubscription(entity, null);
+    }
+
+    private void updateSubscription(EntityRef entity, ProjectileUpdateSubscriptionComponent subscription) {
+        int slot = store.getSlot(entity);
+        if (slot == -1) {
+            return;
+        }
+        if (subscription != null) {
+            store.setUpdateSubscription(slot, Math.max(0, subscription.interval), subscription.sendEvent);
+        } else {
+            store.setUpdateSubscription(slot, -1, false);
+        }
+    }
+
+    @ReceiveEvent
+    public void onProjectileDestroyed(BeforeDeactivateComponent event, EntityRef entity, ProjectileActionComponent projectile) {
+        pool.forget(entity);
+    }
+
     /**
      * Deactivates the projectile and drops it as an item
      */
     @ReceiveEvent
     public void onDeactivate(DeactivateProjectileEvent event, EntityRef entity, ProjectileMotionComponent projectileMotion) {
+        dropProjectile(entity);
+    }
+
+    private void dropProjectile(EntityRef entity) {
+        if (!entity.hasComponent(ProjectileMotionComponent.class)) {
+            return;
+        }
+        int slot = store.getSlot(entity);
+        if (slot != -1) {
+            writeBack(slot, entity);
+        }
         entity.removeComponent(ProjectileMotionComponent.class);
         entity.send(new DropItemEvent(entity.getComponent(LocationComponent.class).getWorldPosition(new Vector3f())));
     }
 
     /**
-     * Updates the state of fired projectiles
+     * Updates the state of fired projectiles.
+     * <p>
+     * A tick first schedules the projectiles to step, then computes their candidate state and swept segment,
+     * optionally in parallel, casts all segments in one batch and finally resolves hits, dispatches events and commits
+     * the new state sequentially. The damage and deactivations of all hits are applied together before the remaining
+     * projectiles are synced.
      */
     @Override
     public void update(float delta) {
-        for (EntityRef entity : entityManager.getEntitiesWith(ProjectileMotionComponent.class)) {
-            ProjectileActionComponent projectile = entity.getComponent(ProjectileActionComponent.class);
-            ProjectileMotionComponent projectileMotion = entity.getComponent(ProjectileMotionComponent.class);
-
-            if (projectileMotion.distanceTravelled >= projectile.maxDistance && projectile.maxDistance != -1) {
-                if (projectile.reusable) {
-                    entity.send(new DeactivateProjectileEvent());
-                } else {
-                    entity.destroy();
-                }
+        long start = System.nanoTime();
+        long phaseStart = metrics.startTimer();
+        store.beginTick();
+        store.setAnalyticTrajectories(settings.analyticTrajectories);
+        store.setFlightModel(settings.drag, settings.integrator, settings.substeps, windField);
+        store.setAdaptiveSubsteps(settings.adaptiveSubsteps, settings.maxSubstepLength, settings.maxSubsteps);
+        if (flightModel != null && !flightModel.matches(settings)) {
+            flightModel = new ProjectileFlightModelEvent(settings);
+            for (EntityRef client : entityManager.getEntitiesWith(ClientComponent.class)) {
+                client.send(flightModel);
+            }
+        }
+        if (settings.lagCompensation) {
+            recordCharacters();
+        }
+        expiryTimer += delta;
+        if (expiryTimer >= 1) {
+            expiryTimer = 0;
+            fireRateLimiter.expire(time.getGameTimeInMs());
+        }
+        int count = store.size();
+        int stepped;
+        if (settings.tickBudget > 0) {
+            stepped = store.schedule(delta, getStepsPerTick(), observers, collectObservers(), settings.fullRateDistance,
+                settings.maxStepInterval);
+        } else {
+            stepped = store.scheduleAll(delta);
+        }
+        if (settings.parallelUpdate && count > ParallelStep.THRESHOLD) {
+            getWorkerPool().invoke(new ParallelStep(store, 0, count));
+        } else {
+            store.prepareStep(0, count, G, TERMINAL_VELOCITY);
+        }
+        integrationTime.stopTimer(phaseStart);
+
+        phaseStart = metrics.startTimer();
+        segments.clear();
+        store.collectSegments(segments, RAY_PADDING);
+        castSegments();
+        rayCastTime.stopTimer(phaseStart);
+        rayCasts.record(segments.size());
+
+        phaseStart = metrics.startTimer();
+        if (settings.projectileCollisions) {
+            store.collectContacts(count, contacts);
+        } else {
+            contacts.reset(0);
+        }
+
+        dispatch(count, delta);
+        segments.clear();
+        store.endTick();
+        dispatchTime.stopTimer(phaseStart);
+        liveProjectiles.set(store.liveCount());
+
+        if (settings.tickBudget > 0 && stepped > 0) {
+            float cost = (float) (System.nanoTime() - start) / stepped;
+            stepCost = stepCost == 0 ? cost : stepCost * 0.9f + cost * 0.1f;
+        }
+    }
+
+    /**
+     * The number of projectiles which fit into the tick budget at the measured cost per projectile
+     */
+    private int getStepsPerTick() {
+        if (stepCost <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(MIN_STEPS_PER_TICK, (int) Math.min(Integer.MAX_VALUE, settings.tickBudget * 1_000_000 / stepCost));
+    }
+
+    /**
+     * Packs the positions of all player characters into {@link #observers}
+     *
+     * @return the number of positions
+     */
+    private int collectObservers() {
+        int count = 0;
+        for (EntityRef client : entityManager.getEntitiesWith(ClientComponent.class)) {
+            EntityRef character = client.getComponent(ClientComponent.class).character;
+            LocationComponent location = character != null ? character.getComponent(LocationComponent.class) : null;
+            if (location == null) {
+                continue;
+            }
+            Vector3f position = location.getWorldPosition(scratchPosition);
+            if (!position.isFinite()) {
+                continue;
+            }
+            if (observers.length < (count + 1) * 3) {
+                observers = Arrays.copyOf(observers, observers.length * 2);
+            }
+            observers[count * 3] = position.x;
+            observers[count * 3 + 1] = position.y;
+            observers[count * 3 + 2] = position.z;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Sends the events of a tick and commits the state of projectiles still in flight. In parallel mode projectiles
+     * are visited by ascending entity id so that game logic sees the same order on every run.
+     */
+    private void dispatch(int count, float delta) {
+        int[] order = store.dispatchOrder(count, settings.parallelUpdate);
+        for (int k = 0; k < count; k++) {
+            int slot = order[k];
+            if (!store.isScheduled(slot)) {
+                continue;
+            }
+            EntityRef entity = store.getEntity(slot);
+            dispatchContacts(slot, entity);
+            if (!store.isLive(slot)) {
                 continue;
             }
 
-            LocationComponent location = entity.getComponent(LocationComponent.class);
-            Vector3f position = location.getWorldPosition(new Vector3f());
-            projectileMotion.direction = new Vector3f(projectileMotion.currentVelocity).normalize();
-            HitResult result;
-            float displacement = Math.min(projectileMotion.currentVelocity.length() * delta,
-                    projectile.maxDistance - projectileMotion.distanceTravelled);
-            // 0.1 is added so that raytraces are inclusive of the endpoint
-            result = physicsRenderer.rayTrace(position, projectileMotion.direction, displacement + .01f, filter);
+            if (store.hasExpired(slot)) {
+                writeBack(slot, entity);
+                deactivate(entity, store.isReusable(slot));
+                continue;
+            }
 
+            HitResult result = segments.getResult(store.getSegment(slot));
             if (result.isHit()) {
                 EntityRef targetEntity = result.getEntity();
-                if (!targetEntity.hasComponent(HealthComponent.class)) {
-                    // a hack to induce a HealthComponent in the blockEntity
-                    targetEntity.send(new DoDamageEvent(0, projectile.damageType));
-                    if (!targetEntity.hasComponent(HealthComponent.class)) {
-                        // if it still doesn't have a health component, it's indestructible
-                        // so destroy our projectile
-                        if (projectile.reusable) {
-                            entity.send(new DeactivateProjectileEvent());
-                        } else {
-                            entity.destroy();
-                        }
-                        continue;
-                    }
+                ProjectileActionComponent projectile = entity.getComponent(ProjectileActionComponent.class);
+                HealthComponent targetHealth = destructibility.ensureHealth(targetEntity, projectile.damageType);
+                if (targetHealth == null) {
+                    // the target is indestructible, so destroy our projectile
+                    writeBack(slot, entity);
+                    deactivate(entity, store.isReusable(slot));
+                    continue;
                 }
-                location.setWorldPosition(result.getHitPoint());
-                entity.saveComponent(location);
-                entity.send(new HitTargetEvent(targetEntity, entity, new Vector3f(),
-                        projectileMotion.direction, result.getHitPoint(), result.getHitNormal()));
-                if (!entity.exists() || !entity.hasComponent(ProjectileMotionComponent.class)) {
+                writeBack(slot, entity, result.getHitPoint());
+                if (!resolveHit(slot, entity, projectile, targetHealth, result)) {
                     continue;
                 }
             }
 
-            position.add(new Vector3f(projectileMotion.currentVelocity).mul(delta));
-            location.setWorldPosition(position);
-            location.setWorldRotation(getRotationQuaternion(projectile.initialOrientation, projectileMotion.currentVelocity));
-            projectileMotion.distanceTravelled += displacement;
+            store.commitStep(slot);
+            if (result.isHit() && settings.compactReplication) {
+                correct(slot, entity);
+            }
+        }
+        if (!hitBatch.isEmpty()) {
+            hitBatch.flush(settings.hitEvents ? sendDeactivation : dropProjectile);
+        }
 
-            if (projectile.affectedByGravity && Math.abs(projectileMotion.currentVelocity.y()) < TERMINAL_VELOCITY) {
-                float update = G * delta;
-                projectileMotion.currentVelocity.y -= update;
+        syncTimer += delta;
+        boolean sync = syncTimer >= settings.locationSyncInterval;
+        if (sync) {
+            syncTimer = 0;
+        }
+        for (int k = 0; k < count; k++) {
+            int slot = order[k];
+            if (!store.isLive(slot)) {
+                continue;
+            }
+            EntityRef entity = store.getEntity(slot);
+            if (settings.compactReplication) {
+                if (store.isScheduled(slot)
+                        && store.getPredictionError(slot, G, TERMINAL_VELOCITY) > settings.correctionThreshold) {
+                    correct(slot, entity);
+                }
+                if (sync) {
+                    // keep the server side current without replicating the location
+                    writeBack(slot, entity, store.getPosition(slot, scratchPosition), false);
+                }
+            } else if (sync) {
+                writeBack(slot, entity);
             }
+            if (store.isDueForUpdate(slot, delta)) {
+                notifyUpdate(slot, entity);
+            } else if (settings.updateEventsForAll && store.isScheduled(slot) && !store.hasUpdateSubscription(slot)) {
+                entity.send(updateEvent);
+            }
+        }
+    }
 
+    /**
+     * Calls the update listeners for a subscribed projectile and sends it a {@link ProjectileUpdateEvent} if its
+     * subscription asks for one
+     */
+    private void notifyUpdate(int slot, EntityRef entity) {
+        if (!updateListeners.isEmpty()) {
+            store.getPosition(slot, scratchPosition);
+            store.getVelocity(slot, scratchVelocity);
+            for (int i = 0; i < updateListeners.size(); i++) {
+                updateListeners.get(i).onProjectileUpdate(entity, scratchPosition, scratchVelocity);
+            }
+        }
+        if (store.hasUpdateEvent(slot) && store.isLive(slot)) {
+            entity.send(updateEvent);
+        }
+    }
 
-            entity.addOrSaveComponent(location);
-            entity.addOrSaveComponent(projectile);
+    /**
+     * Resolves a hit on a target that can be damaged. With {@link ProjectileSimulationSettings#hitEvents}, a
+     * {@link HitTargetEvent} is sent first: a listener consuming it takes the hit over, and
+     * {@link ProjectileCollisionHandler} hands it to {@link #resolveHit(HitTargetEvent, EntityRef,
+     * ProjectileActionComponent)} last. Otherwise the resolver of the projectile type resolves it into the hit batch.
+     *
+     * @return whether the projectile flies on
+     */
+    private boolean resolveHit(int slot, EntityRef entity, ProjectileActionComponent projectile,
+                               HealthComponent targetHealth, HitResult result) {
+        Vector3f direction = store.getDirection(slot, scratchDirection);
+        if (settings.hitEvents) {
+            eventHitSlot = slot;
+            eventTargetHealth = targetHealth;
+            HitTargetEvent event;
+            try {
+                // listeners may keep the event, so it gets vectors of its own
+                event = entity.send(new HitTargetEvent(result.getEntity(), entity, new Vector3f(),
+                        new Vector3f(direction), result.getHitPoint(), result.getHitNormal()));
+            } finally {
+                eventHitSlot = -1;
+                eventTargetHealth = null;
+            }
+            if (event.isConsumed() || !store.isLive(slot)) {
+                return store.isLive(slot) && !hitBatch.isStopped(entity);
+            }
+        }
+        EntityRef shooter = store.getShooter(slot);
+        hitResolvers.resolve(hit.set(entity, projectile, result.getEntity(), targetHealth,
+                shooter != null ? shooter : EntityRef.NULL, direction, result.getHitPoint(), result.getHitNormal()),
+                hitBatch);
+        return !hitBatch.isStopped(entity);
+    }
 
-            entity.send(new ProjectileUpdateEvent());
+    /**
+     * Resolves the hit a {@link HitTargetEvent} sent by this system reports with the resolver of the projectile type,
+     * into the hit batch of the tick, and consumes the event. Events of hits no longer being sent are left alone.
+     */
+    public void resolveHit(HitTargetEvent event, EntityRef entity, ProjectileActionComponent projectile) {
+        if (eventHitSlot == -1 || !entity.equals(store.getEntity(eventHitSlot))) {
+            return;
         }
+        EntityRef shooter = store.getShooter(eventHitSlot);
+        hitResolvers.resolve(hit.set(entity, projectile, event.getTarget(), eventTargetHealth,
+                shooter != null ? shooter : EntityRef.NULL, event.getDirection(), event.getHitPosition(),
+                event.getHitNormal()), hitBatch);
+        event.consume();
+    }
 
+    /**
+     * Notifies both projectiles of every contact owned by the slot, as long as both are still in flight
+     */
+    private void dispatchContacts(int slot, EntityRef entity) {
+        for (int contact = contacts.first(slot); contact != ProjectileContacts.NONE; contact = contacts.next(contact)) {
+            int otherSlot = contacts.getOther(contact);
+            if (!store.isLive(slot) || !store.isLive(otherSlot)) {
+                continue;
+            }
+            EntityRef other = store.getEntity(otherSlot);
+            Vector3f contactPoint = new Vector3f(contacts.getPointX(contact), contacts.getPointY(contact),
+                    contacts.getPointZ(contact));
+            entity.send(new ProjectileCollisionEvent(other, contactPoint));
+            if (store.isLive(otherSlot)) {
+                other.send(new ProjectileCollisionEvent(entity, new Vector3f(contactPoint)));
+            }
+        }
+    }
+
+    @Override
+    public int findInRadius(Vector3fc center, float radius, List<EntityRef> result) {
+        return store.findInRadius(center, radius, result);
+    }
+
+    @Override
+    public int findInBox(Vector3fc min, Vector3fc max, List<EntityRef> result) {
+        return store.findInBox(min, max, result);
+    }
+
+    @Override
+    public int findAlongRay(Vector3fc origin, Vector3fc direction, float length, float radius, List<EntityRef> result) {
+        return store.findAlongRay(origin, direction, length, radius, result);
+    }
+
+    /**
+     * Calls the listener after every step of projectiles with a {@link ProjectileUpdateSubscriptionComponent}, at most
+     * as often as their interval allows.
+     */
+    public void addUpdateListener(ProjectileUpdateListener listener) {
+        updateListeners.add(listener);
+    }
+
+    public void removeUpdateListener(ProjectileUpdateListener listener) {
+        updateListeners.remove(listener);
+    }
+
+    /**
+     * The resolvers turning hits of each type of projectile into damage and deactivation.
+     */
+    public HitResolverRegistry getHitResolvers() {
+        return hitResolvers;
+    }
+
+    /**
+     * The limiter deciding which shots are fired, per shooter and item.
+     */
+    public FireRateLimiter getFireRateLimiter() {
+        return fireRateLimiter;
+    }
+
+    /**
+     * The pool recycling spent projectiles of prefabs with a {@link ProjectileActionComponent#poolSize}.
+     */
+    public ProjectilePool getPool() {
+        return pool;
+    }
+
+    /**
+     * Replaces the estimate of how far behind the server shooters see the world, used by lag compensation. By default
+     * it is the ping of the client controlling the shooter, see {@link PingLatencyEstimator}.
+     */
+    public void setLatencyEstimator(LatencyEstimator latencyEstimator) {
+        this.latencyEstimator = latencyEstimator;
+    }
+
+    public ProjectileSimulationSettings getSettings() {
+        return settings;
+    }
+
+    public BatchRayCaster getRayCaster() {
+        return rayCaster;
+    }
+
+    /**
+     * Replaces the ray caster used to sweep projectiles against the world.
+     */
+    public void setRayCaster(BatchRayCaster rayCaster) {
+        this.rayCaster = rayCaster;
+    }
+
+    public WindField getWindField() {
+        return windField;
+    }
+
+    /**
+     * Replaces the wind projectiles fly through while {@link ProjectileSimulationSettings#drag} is enabled, e.g. with
+     * a {@link RegionWindField}.
+     */
+    public void setWindField(WindField windField) {
+        this.windField = windField;
+    }
+
+    private void castSegments() {
+        segments.sortByChunk();
+        BatchRayCaster caster = rayCaster;
+        if (settings.lagCompensation) {
+            lagCompensatedRayCaster.setDelegate(rayCaster);
+            lagCompensatedRayCaster.setTime(time.getGameTimeInMs(), settings.maxRewind);
+            caster = lagCompensatedRayCaster;
+        }
+        if (settings.parallelRayCasts && !caster.isThreadSafe() && !warnedSerialRayCasts) {
+            warnedSerialRayCasts = true;
+            logger.warn("parallelRayCasts is enabled, but the ray caster {} is not thread safe; casting on the main thread",
+                caster.getClass().getSimpleName());
+        }
+        if (settings.parallelRayCasts && caster.isThreadSafe() && segments.size() > ParallelRayCast.THRESHOLD) {
+            getWorkerPool().invoke(new ParallelRayCast(caster, segments, filter));
+        } else {
+            caster.cast(segments, 0, segments.size(), filter);
+        }
+    }
+
+    /**
+     * Adds the current colliders of all characters to the history lag compensated ray casts rewind
+     */
+    private void recordCharacters() {
+        if (characterHistory == null) {
+            characterHistory = new CharacterHistory(settings.historyFrames, settings.maxHistoryCharacters);
+            lagCompensatedRayCaster = new LagCompensatedRayCaster(rayCaster, characterHistory);
+        }
+        long start = metrics.startTimer();
+        characterHistory.beginFrame(time.getGameTimeInMs());
+        for (EntityRef character : entityManager.getEntitiesWith(CharacterComponent.class, LocationComponent.class)) {
+            Vector3f position = character.getComponent(LocationComponent.class).getWorldPosition(scratchPosition);
+            if (!position.isFinite()) {
+                continue;
+            }
+            CharacterMovementComponent movement = character.getComponent(CharacterMovementComponent.class);
+            float radius = movement != null ? movement.radius : DEFAULT_CHARACTER_RADIUS;
+            float height = movement != null ? movement.height : DEFAULT_CHARACTER_HEIGHT;
+            characterHistory.record(character, position.x, position.y, position.z, radius, height);
+        }
+        characterHistory.endFrame();
+        historyRecordTime.stopTimer(start);
+        int overflow = characterHistory.getOverflowCount();
+        if (overflow > 0 && !warnedHistoryOverflow) {
+            warnedHistoryOverflow = true;
+            logger.warn("{} characters exceed maxHistoryCharacters ({}); they are hit without lag compensation",
+                overflow, settings.maxHistoryCharacters);
+        }
+        historyCharacters.set(characterHistory.getCharacterCount() + overflow);
+        historyOverflow.set(overflow);
+        historyMemory.set(characterHistory.getMemoryBytes());
+    }
+
+    private ForkJoinPool getWorkerPool() {
+        if (settings.parallelism <= 0) {
+            return ForkJoinPool.commonPool();
+        }
+        if (workerPool == null || workerPool.getParallelism() != settings.parallelism) {
+            if (workerPool != null) {
+                workerPool.shutdown();
+            }
+            workerPool = new ForkJoinPool(settings.parallelism);
+        }
+        return workerPool;
+    }
+
+    private void deactivate(EntityRef entity, boolean reusable) {
+        if (reusable) {
+            entity.send(new DeactivateProjectileEvent());
+        } else if (!pool.release(entity)) {
+            entity.destroy();
+        }
+    }
+
+    /**
+     * Copies the simulated state of a projectile into its entity
+     */
+    private void writeBack(int slot, EntityRef entity) {
+        writeBack(slot, entity, store.getPosition(slot, scratchPosition));
+    }
+
+    private void writeBack(int slot, EntityRef entity, Vector3f position) {
+        writeBack(slot, entity, position, true);
+    }
+
+    private void writeBack(int slot, EntityRef entity, Vector3f position, boolean save) {
+        LocationComponent location = entity.getComponent(LocationComponent.class);
+        ProjectileMotionComponent projectileMotion = entity.getComponent(ProjectileMotionComponent.class);
+        if (location == null || projectileMotion == null) {
+            return;
+        }
+        if (projectileMotion.currentVelocity == null) {
+            projectileMotion.currentVelocity = new Vector3f();
+        }
+        if (projectileMotion.direction == null) {
+            projectileMotion.direction = new Vector3f();
+        }
+        // update the component vectors in place rather than replacing them
+        store.getVelocity(slot, projectileMotion.currentVelocity);
+        store.getDirection(slot, projectileMotion.direction);
+        projectileMotion.distanceTravelled = store.getDistanceTravelled(slot);
+
+        location.setWorldPosition(position);
+        location.setWorldRotation(getRotationQuaternion(store.getInitialOrientation(slot, scratchOrientation),
+                projectileMotion.currentVelocity, scratchCrossProduct, scratchRotation));
+        if (save) {
+            writingBack = true;
+            try {
+                entity.saveComponent(location);
+            } finally {
+                writingBack = false;
+            }
+        }
+    }
+
+    /**
+     * Restarts the trajectory clients simulate from the current state of the projectile and broadcasts it
+     */
+    private void correct(int slot, EntityRef entity) {
+        long now = time.getGameTimeInMs();
+        store.reanchor(slot);
+        ProjectileMotionComponent projectileMotion = entity.getComponent(ProjectileMotionComponent.class);
+        if (projectileMotion != null) {
+            if (projectileMotion.launchPosition == null) {
+                projectileMotion.launchPosition = new Vector3f();
+            }
+            if (projectileMotion.launchVelocity == null) {
+                projectileMotion.launchVelocity = new Vector3f();
+            }
+            store.getPosition(slot, projectileMotion.launchPosition);
+            store.getVelocity(slot, projectileMotion.launchVelocity);
+            projectileMotion.launchTime = now;
+        }
+        entity.send(new ProjectileCorrectionEvent(store.getPosition(slot, new Vector3f()),
+            store.getVelocity(slot, new Vector3f()), now, true));
     }
 }
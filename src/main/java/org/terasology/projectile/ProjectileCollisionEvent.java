@@ -0,0 +1,35 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.joml.Vector3f;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.event.AbstractConsumableEvent;
+
+/**
+ * Sent to both projectiles of a pair whose paths came within their collision radii during a tick. Only sent if
+ * projectile collisions are enabled in the {@link ProjectileSimulationSettings}.
+ */
+public class ProjectileCollisionEvent extends AbstractConsumableEvent {
+    private EntityRef other;
+    private Vector3f contactPoint;
+
+    public ProjectileCollisionEvent(EntityRef other, Vector3f contactPoint) {
+        this.other = other;
+        this.contactPoint = contactPoint;
+    }
+
+    /**
+     * @return the projectile this one collided with
+     */
+    public EntityRef getOther() {
+        return other;
+    }
+
+    /**
+     * @return the point halfway between both projectiles at their closest approach
+     */
+    public Vector3f getContactPoint() {
+        return contactPoint;
+    }
+}
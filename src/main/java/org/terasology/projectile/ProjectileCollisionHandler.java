@@ -21,17 +21,50 @@ import org.terasology.engine.entitySystem.event.Priority;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.registry.In;
 import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
-import org.terasology.module.health.events.DoDamageEvent;
+import org.terasology.projectile.hit.HitBatch;
+import org.terasology.projectile.hit.ProjectileHit;
+import org.terasology.projectile.metrics.Metric;
+import org.terasology.projectile.metrics.ProjectileMetrics;
 
+/**
+ * Resolves hits of projectiles of no particular type: the target takes the damage of the projectile, which then drops
+ * as an item. Also the default handler of {@link HitTargetEvent}, which systems handling it before can override.
+ */
 @RegisterSystem(RegisterMode.AUTHORITY)
 public class ProjectileCollisionHandler extends BaseComponentSystem {
+    @In
+    private ProjectileMetrics metrics;
+
+    @In
+    private ProjectileAuthoritySystem projectileAuthoritySystem;
+
+    private Metric hits;
+
+    @Override
+    public void initialise() {
+        hits = metrics.counter(ProjectileMetrics.PROJECTILE_HITS);
+        projectileAuthoritySystem.getHitResolvers().setDefault(this::resolveHit);
+    }
+
+    @Override
+    public void shutdown() {
+        projectileAuthoritySystem.getHitResolvers().setDefault(null);
+    }
+
     // Set handler to low priority as it contains override-able default behaviour
     @Priority(EventPriority.PRIORITY_LOW)
     @ReceiveEvent
     public void onCollision(HitTargetEvent event, EntityRef entity, ProjectileActionComponent projectile) {
-        event.getTarget().send(new DoDamageEvent(projectile.damageAmount, projectile.damageType));
+        projectileAuthoritySystem.resolveHit(event, entity, projectile);
+    }
+
+    private void resolveHit(ProjectileHit hit, HitBatch batch) {
+        hits.add(1);
+        ProjectileActionComponent projectile = hit.getAction();
+        batch.damage(hit.getTarget(), projectile.damageAmount, projectile.damageType);
         //reset ProjectileActionComponent to defaults and drop item
-        entity.send(new DeactivateProjectileEvent());
+        batch.deactivate(hit.getProjectile());
     }
 }
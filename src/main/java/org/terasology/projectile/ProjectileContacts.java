@@ -0,0 +1,82 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import java.util.Arrays;
+
+/**
+ * Contacts between pairs of projectiles found during one tick. Every contact is listed under its owner, the member of
+ * the pair with the lower entity id, so that it is dispatched exactly once and at a reproducible point.
+ */
+class ProjectileContacts {
+    static final int NONE = -1;
+
+    private int size;
+    private int slotCount;
+    private int[] owner = new int[16];
+    private int[] other = new int[16];
+    private int[] next = new int[16];
+    private float[] point = new float[16 * 3];
+    private int[] head = new int[0];
+
+    /**
+     * Drops all contacts and prepares for a store with the given number of slots.
+     */
+    void reset(int slotCount) {
+        size = 0;
+        this.slotCount = slotCount;
+        if (head.length < slotCount) {
+            head = new int[Math.max(slotCount, head.length * 2)];
+        }
+        Arrays.fill(head, 0, slotCount, NONE);
+    }
+
+    void add(int ownerSlot, int otherSlot, float x, float y, float z) {
+        if (size == owner.length) {
+            int capacity = size * 2;
+            owner = Arrays.copyOf(owner, capacity);
+            other = Arrays.copyOf(other, capacity);
+            next = Arrays.copyOf(next, capacity);
+            point = Arrays.copyOf(point, capacity * 3);
+        }
+        owner[size] = ownerSlot;
+        other[size] = otherSlot;
+        point[size * 3] = x;
+        point[size * 3 + 1] = y;
+        point[size * 3 + 2] = z;
+        next[size] = head[ownerSlot];
+        head[ownerSlot] = size;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the first contact owned by the slot, or {@link #NONE}
+     */
+    int first(int slot) {
+        return slot < slotCount ? head[slot] : NONE;
+    }
+
+    int next(int contact) {
+        return next[contact];
+    }
+
+    int getOther(int contact) {
+        return other[contact];
+    }
+
+    float getPointX(int contact) {
+        return point[contact * 3];
+    }
+
+    float getPointY(int contact) {
+        return point[contact * 3 + 1];
+    }
+
+    float getPointZ(int contact) {
+        return point[contact * 3 + 2];
+    }
+}
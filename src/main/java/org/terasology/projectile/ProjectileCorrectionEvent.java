@@ -0,0 +1,57 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.joml.Vector3f;
+import org.terasology.engine.network.BroadcastEvent;
+import org.terasology.gestalt.entitysystem.event.Event;
+
+/**
+ * Broadcast with compact replication when the authoritative state of a projectile departs from the trajectory clients
+ * simulate, after a hit, on significant divergence or once the projectile leaves flight.
+ */
+@BroadcastEvent
+public class ProjectileCorrectionEvent implements Event {
+    private Vector3f position;
+    private Vector3f velocity;
+    private long time;
+    private boolean inFlight;
+
+    protected ProjectileCorrectionEvent() {
+    }
+
+    public ProjectileCorrectionEvent(Vector3f position, Vector3f velocity, long time, boolean inFlight) {
+        this.position = position;
+        this.velocity = velocity;
+        this.time = time;
+        this.inFlight = inFlight;
+    }
+
+    /**
+     * @return the position of the projectile at the time of the correction
+     */
+    public Vector3f getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the velocity of the projectile at the time of the correction
+     */
+    public Vector3f getVelocity() {
+        return velocity;
+    }
+
+    /**
+     * @return the game time in milliseconds of the correction
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return false if the projectile stopped, in which case clients stop simulating it
+     */
+    public boolean isInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,82 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.terasology.engine.network.OwnerEvent;
+import org.terasology.gestalt.entitysystem.event.Event;
+
+/**
+ * Sent by the server to the entity of every client when it connects and whenever the flight model of the
+ * {@link ProjectileSimulationSettings} changes, so that remote clients predict shots with the flight model of the
+ * server. The {@link WindField} is not sent: predictions fly in calm air.
+ */
+@OwnerEvent
+public class ProjectileFlightModelEvent implements Event {
+    private boolean analyticTrajectories;
+    private boolean drag;
+    private FlightIntegrator integrator;
+    private int substeps;
+    private boolean adaptiveSubsteps;
+    private float maxSubstepLength;
+    private int maxSubsteps;
+
+    protected ProjectileFlightModelEvent() {
+    }
+
+    public ProjectileFlightModelEvent(ProjectileSimulationSettings settings) {
+        this.analyticTrajectories = settings.analyticTrajectories;
+        this.drag = settings.drag;
+        this.integrator = settings.integrator;
+        this.substeps = settings.substeps;
+        this.adaptiveSubsteps = settings.adaptiveSubsteps;
+        this.maxSubstepLength = settings.maxSubstepLength;
+        this.maxSubsteps = settings.maxSubsteps;
+    }
+
+    /**
+     * @return whether the settings still have this flight model
+     */
+    public boolean matches(ProjectileSimulationSettings settings) {
+        return analyticTrajectories == settings.analyticTrajectories && drag == settings.drag
+            && integrator == settings.integrator && substeps == settings.substeps
+            && adaptiveSubsteps == settings.adaptiveSubsteps && maxSubstepLength == settings.maxSubstepLength
+            && maxSubsteps == settings.maxSubsteps;
+    }
+
+    /**
+     * Makes the store fly projectiles with this flight model, in calm air.
+     */
+    public void applyTo(ProjectileStore store) {
+        store.setAnalyticTrajectories(analyticTrajectories);
+        store.setFlightModel(drag, integrator, substeps, WindField.CALM);
+        store.setAdaptiveSubsteps(adaptiveSubsteps, maxSubstepLength, maxSubsteps);
+    }
+
+    public boolean isAnalyticTrajectories() {
+        return analyticTrajectories;
+    }
+
+    public boolean isDrag() {
+        return drag;
+    }
+
+    public FlightIntegrator getIntegrator() {
+        return integrator;
+    }
+
+    public int getSubsteps() {
+        return substeps;
+    }
+
+    public boolean isAdaptiveSubsteps() {
+        return adaptiveSubsteps;
+    }
+
+    public float getMaxSubstepLength() {
+        return maxSubstepLength;
+    }
+
+    public int getMaxSubsteps() {
+        return maxSubsteps;
+    }
+}
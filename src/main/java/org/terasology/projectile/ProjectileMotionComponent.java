@@ -3,6 +3,8 @@
 package org.terasology.projectile;
 
 import org.joml.Vector3f;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.network.Replicate;
 import org.terasology.gestalt.entitysystem.component.Component;
 
 /**
@@ -11,7 +13,8 @@ import org.terasology.gestalt.entitysystem.component.Component;
 public class ProjectileMotionComponent implements Component<ProjectileMotionComponent> {
 
     /**
-     * The current velocity of projectile.
+     * The current velocity of projectile. Saving the component with a new velocity while the projectile is in flight
+     * makes it fly on with that velocity; without saving, the change is overwritten by the simulation.
      */
     public Vector3f currentVelocity = null;
 
@@ -25,10 +28,43 @@ public class ProjectileMotionComponent implements Component<ProjectileMotionComp
      */
     public float distanceTravelled = 0;
 
+    /**
+     * The position the projectile was fired from.
+     */
+    public Vector3f launchPosition = null;
+
+    /**
+     * The velocity the projectile was fired with.
+     */
+    public Vector3f launchVelocity = null;
+
+    /**
+     * The game time in milliseconds at which the projectile was fired. Replicated so that clients can match it against
+     * the shots they predicted.
+     */
+    @Replicate
+    public long launchTime = 0;
+
+    /**
+     * The entity which fired the projectile. Replicated so that clients can match it against the shots they predicted.
+     */
+    @Replicate
+    public EntityRef shooter = EntityRef.NULL;
+
+    /**
+     * How many milliseconds the world the shooter saw lagged behind the server when firing.
+     */
+    public int shooterLatency = 0;
+
     @Override
     public void copyFrom(ProjectileMotionComponent other) {
         this.currentVelocity = new Vector3f(other.currentVelocity);
         this.direction = new Vector3f(other.direction);
         this.distanceTravelled = other.distanceTravelled;
+        this.launchPosition = other.launchPosition != null ? new Vector3f(other.launchPosition) : null;
+        this.launchVelocity = other.launchVelocity != null ? new Vector3f(other.launchVelocity) : null;
+        this.launchTime = other.launchTime;
+        this.shooter = other.shooter;
+        this.shooterLatency = other.shooterLatency;
     }
 }
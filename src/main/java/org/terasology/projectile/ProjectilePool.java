@@ -0,0 +1,214 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.terasology.engine.entitySystem.entity.EntityBuilder;
+import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.internal.EntityInfoComponent;
+import org.terasology.engine.entitySystem.metadata.ComponentLibrary;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.network.NetworkComponent;
+import org.terasology.gestalt.entitysystem.component.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recycles the entities of spent projectiles per prefab, so that rapid-fire weapons do not create and destroy an
+ * entity for every shot.
+ * <p>
+ * A parked projectile keeps its entity and the instances of its {@link ProjectileMotionComponent} and
+ * {@link LocationComponent}; the components are detached while parked and attached again when it is fired. All other
+ * components are reset to copies of those of the prefab when it is parked, and components the prefab does not have are
+ * removed, so a projectile comes back from the pool as the prefab made it rather than damaged, shrunk or otherwise
+ * changed by its last flight. Pooled entities are not persistent, so projectiles in flight from a pooled prefab are
+ * not saved with the world.
+ */
+public class ProjectilePool {
+    private final EntityManager entityManager;
+    private final Map<Prefab, PrefabPool> pools = new HashMap<>();
+    private final Map<EntityRef, PooledProjectile> members = new HashMap<>();
+    private final List<Class<? extends Component>> staleComponents = new ArrayList<>();
+
+    public ProjectilePool(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Raises the number of parked projectiles kept for the prefab to {@code size} and creates them up front.
+     */
+    public void prewarm(Prefab prefab, int size) {
+        PrefabPool pool = pools.computeIfAbsent(prefab, PrefabPool::new);
+        if (size <= pool.capacity) {
+            return;
+        }
+        pool.capacity = size;
+        while (pool.free.size() < size) {
+            pool.free.push(create(pool));
+        }
+    }
+
+    /**
+     * Returns a parked projectile of the prefab, or a newly created one if none is left.
+     */
+    public EntityRef acquire(Prefab prefab) {
+        PrefabPool pool = pools.computeIfAbsent(prefab, PrefabPool::new);
+        while (!pool.free.isEmpty()) {
+            PooledProjectile projectile = pool.free.pop();
+            if (projectile.entity.exists()) {
+                pool.hits++;
+                return projectile.entity;
+            }
+            members.remove(projectile.entity);
+        }
+        pool.misses++;
+        return create(pool).entity;
+    }
+
+    /**
+     * Parks a spent projectile. Returns false if the entity does not belong to the pool or its prefab already has as
+     * many parked projectiles as it keeps, in which case the caller disposes of it.
+     */
+    public boolean release(EntityRef entity) {
+        PooledProjectile projectile = members.get(entity);
+        if (projectile == null) {
+            return false;
+        }
+        if (projectile.pool.free.size() >= projectile.pool.capacity) {
+            members.remove(entity);
+            return false;
+        }
+        ProjectileMotionComponent motion = entity.getComponent(ProjectileMotionComponent.class);
+        if (motion != null) {
+            projectile.motion = motion;
+            entity.removeComponent(ProjectileMotionComponent.class);
+        }
+        LocationComponent location = entity.getComponent(LocationComponent.class);
+        if (location != null) {
+            projectile.location = location;
+            entity.removeComponent(LocationComponent.class);
+        }
+        reset(entity, projectile.pool.prefab);
+        projectile.pool.free.push(projectile);
+        return true;
+    }
+
+    /**
+     * Drops a pooled entity that is being destroyed.
+     */
+    public void forget(EntityRef entity) {
+        PooledProjectile projectile = members.remove(entity);
+        if (projectile != null) {
+            projectile.pool.free.remove(projectile);
+        }
+    }
+
+    /**
+     * The motion component the projectile flew with before it was parked, or null.
+     */
+    public ProjectileMotionComponent getMotion(EntityRef entity) {
+        PooledProjectile projectile = members.get(entity);
+        return projectile != null ? projectile.motion : null;
+    }
+
+    /**
+     * The location component the projectile flew with before it was parked, or null.
+     */
+    public LocationComponent getLocation(EntityRef entity) {
+        PooledProjectile projectile = members.get(entity);
+        return projectile != null ? projectile.location : null;
+    }
+
+    public boolean isPooled(Prefab prefab) {
+        PrefabPool pool = pools.get(prefab);
+        return pool != null && pool.capacity > 0;
+    }
+
+    public int getParkedCount(Prefab prefab) {
+        PrefabPool pool = pools.get(prefab);
+        return pool != null ? pool.free.size() : 0;
+    }
+
+    /**
+     * Number of projectiles of the prefab served from parked entities.
+     */
+    public long getHits(Prefab prefab) {
+        PrefabPool pool = pools.get(prefab);
+        return pool != null ? pool.hits : 0;
+    }
+
+    /**
+     * Number of projectiles of the prefab that needed a new entity because none was parked.
+     */
+    public long getMisses(Prefab prefab) {
+        PrefabPool pool = pools.get(prefab);
+        return pool != null ? pool.misses : 0;
+    }
+
+    public void clear() {
+        pools.clear();
+        members.clear();
+    }
+
+    /**
+     * Puts the components of a parked projectile back to the state of the prefab. The components of the engine every
+     * entity has are kept.
+     */
+    private void reset(EntityRef entity, Prefab prefab) {
+        for (Component component : entity.iterateComponents()) {
+            Class<? extends Component> type = component.getClass();
+            if (!prefab.hasComponent(type) && type != EntityInfoComponent.class && type != NetworkComponent.class) {
+                staleComponents.add(type);
+            }
+        }
+        for (int i = 0; i < staleComponents.size(); i++) {
+            entity.removeComponent(staleComponents.get(i));
+        }
+        staleComponents.clear();
+        ComponentLibrary componentLibrary = entityManager.getComponentLibrary();
+        for (Component component : prefab.iterateComponents()) {
+            // the location is placed when the projectile is fired
+            if (!(component instanceof LocationComponent)) {
+                entity.addOrSaveComponent(componentLibrary.copy(component));
+            }
+        }
+    }
+
+    private PooledProjectile create(PrefabPool pool) {
+        EntityBuilder builder = entityManager.newBuilder(pool.prefab);
+        builder.setPersistent(false);
+        PooledProjectile projectile = new PooledProjectile(builder.build(), pool);
+        members.put(projectile.entity, projectile);
+        return projectile;
+    }
+
+    private static final class PrefabPool {
+        private final Prefab prefab;
+        private final Deque<PooledProjectile> free = new ArrayDeque<>();
+        private int capacity;
+        private long hits;
+        private long misses;
+
+        private PrefabPool(Prefab prefab) {
+            this.prefab = prefab;
+        }
+    }
+
+    private static final class PooledProjectile {
+        private final EntityRef entity;
+        private final PrefabPool pool;
+        private ProjectileMotionComponent motion;
+        private LocationComponent location;
+
+        private PooledProjectile(EntityRef entity, PrefabPool pool) {
+            this.entity = entity;
+            this.pool = pool;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityBuilder;
+import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.characters.events.ActivationPredicted;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.physics.CollisionGroup;
+import org.terasology.engine.physics.Physics;
+import org.terasology.engine.physics.StandardCollisionGroup;
+import org.terasology.engine.registry.In;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.projectile.collision.BatchRayCaster;
+import org.terasology.projectile.collision.PhysicsBatchRayCaster;
+import org.terasology.projectile.collision.RaySegmentBatch;
+import org.terasology.projectile.metrics.Metric;
+import org.terasology.projectile.metrics.ProjectileMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows projectiles fired by the local player on remote clients right away instead of after a round trip to the
+ * server. Remote clients never receive the {@link org.terasology.engine.logic.common.ActivateEvent} the server fires
+ * on, they send the activation to the server and receive {@link ActivationPredicted} on the used item locally instead.
+ * On it a local, purely visual copy of the projectile is spawned and flown until it hits the world, with the flight
+ * model the server sends in a {@link ProjectileFlightModelEvent}, so that it follows the path of the authoritative
+ * projectile.
+ * <p>
+ * When the authoritative projectile arrives, the oldest pending prediction of the same prefab and shooter whose fire
+ * time lies within the confirmation window of the launch time of the server is discarded in its favour. Projectiles
+ * fired by other players or long before or after a prediction never confirm it. Predictions launched too far from where
+ * the server launched the projectile count as mismatched, those the server never confirms as unconfirmed.
+ */
+@RegisterSystem(RegisterMode.REMOTE_CLIENT)
+public class ProjectilePredictionSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    /**
+     * Milliseconds after which a prediction the server has not confirmed is discarded
+     */
+    private static final long CONFIRMATION_WINDOW = 1000;
+
+    /**
+     * Distance between the predicted and the authoritative launch position above which a prediction was wrong
+     */
+    private static final float MISMATCH_DISTANCE = 1f;
+
+    private static final float RAY_PADDING = .01f;
+
+    /**
+     * Milliseconds the fire rate of an item is remembered once it no longer limits it
+     */
+    private static final long FIRE_RATE_EXPIRY = 5000;
+
+    @In
+    private Time time;
+
+    @In
+    private EntityManager entityManager;
+
+    @In
+    private Physics physics;
+
+    @In
+    private ProjectileMetrics metrics;
+
+    private CollisionGroup[] filter = {StandardCollisionGroup.DEFAULT, StandardCollisionGroup.WORLD, StandardCollisionGroup.CHARACTER};
+    private final FireRateLimiter fireRateLimiter = new FireRateLimiter(FIRE_RATE_EXPIRY);
+    private boolean spawningVisual;
+
+    private final ProjectileStore store = new ProjectileStore();
+    private final RaySegmentBatch segments = new RaySegmentBatch();
+    private final List<Prediction> predictions = new ArrayList<>();
+    private BatchRayCaster rayCaster;
+
+    private Metric predicted;
+    private Metric mismatched;
+    private Metric unconfirmed;
+
+    private final Vector3f scratchPosition = new Vector3f();
+    private final Vector3f scratchVelocity = new Vector3f();
+    private final Vector3f scratchOrientation = new Vector3f();
+    private final Vector3f scratchCrossProduct = new Vector3f();
+    private final Quaternionf scratchRotation = new Quaternionf();
+
+    @Override
+    public void initialise() {
+        // until the server sends its flight model, predict with the default one
+        new ProjectileFlightModelEvent(new ProjectileSimulationSettings()).applyTo(store);
+        rayCaster = new PhysicsBatchRayCaster(physics);
+        predicted = metrics.counter(ProjectileMetrics.PREDICTED_PROJECTILES);
+        mismatched = metrics.counter(ProjectileMetrics.MISMATCHED_PREDICTIONS);
+        unconfirmed = metrics.counter(ProjectileMetrics.UNCONFIRMED_PREDICTIONS);
+    }
+
+    @Override
+    public void shutdown() {
+        for (Prediction prediction : predictions) {
+            prediction.visual.destroy();
+        }
+        predictions.clear();
+        fireRateLimiter.clear();
+        store.clear();
+        segments.clear();
+    }
+
+    @ReceiveEvent
+    public void onFlightModel(ProjectileFlightModelEvent event, EntityRef client) {
+        event.applyTo(store);
+    }
+
+    @ReceiveEvent
+    public void onActivationPredicted(ActivationPredicted event, EntityRef item, ProjectileActionComponent projectile) {
+        Prefab prefab = item.getParentPrefab();
+        // follows the limit of the server, so that shots it rejects are not predicted
+        if (prefab == null || !fireRateLimiter.tryFire(event.getInstigator(), item, projectile, time.getGameTimeInMs())) {
+            return;
+        }
+
+        Vector3f origin = new Vector3f(event.getOrigin());
+        Vector3f velocity = new Vector3f(event.getDirection()).mul(projectile.initialVelocity);
+        LocationComponent location = new LocationComponent(origin);
+        location.setWorldScale(projectile.iconScale);
+        location.setWorldRotation(ProjectileAuthoritySystem.getRotationQuaternion(projectile.initialOrientation,
+                event.getDirection(), new Vector3f(), new Quaternionf()));
+        EntityBuilder builder = entityManager.newBuilder(prefab);
+        builder.setPersistent(false);
+        builder.addOrSaveComponent(location);
+        spawningVisual = true;
+        EntityRef visual = builder.build();
+        spawningVisual = false;
+
+        store.add(visual, origin, velocity, 0, projectile, origin, velocity, 0);
+        predictions.add(new Prediction(visual, prefab, event.getInstigator(), origin, time.getGameTimeInMs()));
+        predicted.add(1);
+    }
+
+    /**
+     * Reconciles the oldest pending prediction of the prefab and shooter fired around the launch time with an
+     * authoritative projectile coming into view
+     */
+    @ReceiveEvent
+    public void onProjectileArrived(OnActivatedComponent event, EntityRef entity, LocationComponent location,
+                                    ProjectileActionComponent projectile, ProjectileMotionComponent motion) {
+        Prefab prefab = entity.getParentPrefab();
+        if (prefab == null || predictions.isEmpty() || spawningVisual) {
+            return;
+        }
+        for (int i = 0; i < predictions.size(); i++) {
+            Prediction prediction = predictions.get(i);
+            if (prediction.prefab != prefab || !prediction.shooter.equals(motion.shooter)
+                    || Math.abs(motion.launchTime - prediction.fireTime) > CONFIRMATION_WINDOW) {
+                continue;
+            }
+            if (location.getWorldPosition(scratchPosition).distance(prediction.origin) > MISMATCH_DISTANCE) {
+                mismatched.add(1);
+            }
+            discard(i);
+            return;
+        }
+    }
+
+    @Override
+    public void update(float delta) {
+        if (predictions.isEmpty()) {
+            if (fireRateLimiter.size() > 0) {
+                fireRateLimiter.expire(time.getGameTimeInMs());
+            }
+            return;
+        }
+        store.beginTick();
+        store.scheduleAll(delta);
+        int count = store.size();
+        store.prepareStep(0, count, ProjectileAuthoritySystem.G, ProjectileAuthoritySystem.TERMINAL_VELOCITY);
+        segments.clear();
+        store.collectSegments(segments, RAY_PADDING);
+        rayCaster.cast(segments, 0, segments.size(), filter);
+        for (int slot = 0; slot < count; slot++) {
+            if (!store.isLive(slot)) {
+                continue;
+            }
+            EntityRef visual = store.getEntity(slot);
+            int segment = store.getSegment(slot);
+            if (store.hasExpired(slot) || segment != -1 && segments.getResult(segment).isHit()) {
+                // the visual copy ends here, the pending prediction stays until the server confirms it
+                store.remove(visual);
+                visual.destroy();
+                continue;
+            }
+            store.commitStep(slot);
+            LocationComponent location = visual.getComponent(LocationComponent.class);
+            if (location != null) {
+                location.setWorldPosition(store.getPosition(slot, scratchPosition));
+                location.setWorldRotation(ProjectileAuthoritySystem.getRotationQuaternion(
+                        store.getInitialOrientation(slot, scratchOrientation), store.getVelocity(slot, scratchVelocity),
+                        scratchCrossProduct, scratchRotation));
+                visual.saveComponent(location);
+            }
+        }
+        segments.clear();
+        store.endTick();
+
+        long now = time.getGameTimeInMs();
+        while (!predictions.isEmpty() && now - predictions.get(0).fireTime > CONFIRMATION_WINDOW) {
+            unconfirmed.add(1);
+            discard(0);
+        }
+    }
+
+    private void discard(int index) {
+        Prediction prediction = predictions.remove(index);
+        store.remove(prediction.visual);
+        prediction.visual.destroy();
+    }
+
+    private static final class Prediction {
+        private final EntityRef visual;
+        private final Prefab prefab;
+        private final EntityRef shooter;
+        private final Vector3f origin;
+        private final long fireTime;
+
+        private Prediction(EntityRef visual, Prefab prefab, EntityRef shooter, Vector3f origin, long fireTime) {
+            this.visual = visual;
+            this.prefab = prefab;
+            this.shooter = shooter;
+            this.origin = origin;
+            this.fireTime = fireTime;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.registry.In;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+
+/**
+ * Moves projectiles on remote clients along the trajectory broadcast by the server when compact replication is
+ * enabled, see {@link ProjectileSimulationSettings#compactReplication}. Clients only render the flight; hits are
+ * still decided by the server.
+ */
+@RegisterSystem(RegisterMode.REMOTE_CLIENT)
+public class ProjectileReplicationClientSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    @In
+    private Time time;
+
+    private final ProjectileStore store = new ProjectileStore();
+
+    private final Vector3f scratchPosition = new Vector3f();
+    private final Vector3f scratchVelocity = new Vector3f();
+    private final Vector3f scratchOrientation = new Vector3f();
+    private final Vector3f scratchCrossProduct = new Vector3f();
+    private final Quaternionf scratchRotation = new Quaternionf();
+
+    @Override
+    public void initialise() {
+        store.setAnalyticTrajectories(true);
+    }
+
+    @Override
+    public void shutdown() {
+        store.clear();
+    }
+
+    @ReceiveEvent
+    public void onSpawn(ProjectileSpawnEvent event, EntityRef entity) {
+        follow(entity, event.getPrefab(), event.getOrigin(), event.getVelocity(), event.getLaunchTime());
+    }
+
+    @ReceiveEvent
+    public void onCorrection(ProjectileCorrectionEvent event, EntityRef entity) {
+        if (!event.isInFlight()) {
+            store.remove(entity);
+            return;
+        }
+        follow(entity, entity.getParentPrefab(), event.getPosition(), event.getVelocity(), event.getTime());
+    }
+
+    @ReceiveEvent
+    public void onDestroyed(BeforeDeactivateComponent event, EntityRef entity, LocationComponent location) {
+        store.remove(entity);
+    }
+
+    @Override
+    public void update(float delta) {
+        store.beginTick();
+        store.scheduleAll(delta);
+        int count = store.size();
+        store.prepareStep(0, count, ProjectileAuthoritySystem.G, ProjectileAuthoritySystem.TERMINAL_VELOCITY);
+        for (int slot = 0; slot < count; slot++) {
+            if (!store.isLive(slot)) {
+                continue;
+            }
+            store.commitStep(slot);
+            EntityRef entity = store.getEntity(slot);
+            LocationComponent location = entity.getComponent(LocationComponent.class);
+            if (location == null) {
+                store.remove(entity);
+                continue;
+            }
+            location.setWorldPosition(store.getPosition(slot, scratchPosition));
+            location.setWorldRotation(ProjectileAuthoritySystem.getRotationQuaternion(
+                    store.getInitialOrientation(slot, scratchOrientation), store.getVelocity(slot, scratchVelocity),
+                    scratchCrossProduct, scratchRotation));
+            entity.saveComponent(location);
+        }
+        store.endTick();
+    }
+
+    /**
+     * Starts or restarts following the trajectory through the given state at the given game time.
+     */
+    private void follow(EntityRef entity, Prefab prefab, Vector3f position, Vector3f velocity, long anchorTime) {
+        ProjectileActionComponent projectile = entity.getComponent(ProjectileActionComponent.class);
+        if (projectile == null && prefab != null) {
+            projectile = prefab.getComponent(ProjectileActionComponent.class);
+        }
+        if (projectile == null) {
+            return;
+        }
+        float flightTime = Math.max(0, (time.getGameTimeInMs() - anchorTime) / 1000f);
+        store.add(entity, position, velocity, 0, projectile, position, velocity, flightTime);
+    }
+}
@@ -0,0 +1,151 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+/**
+ * Tuning knobs of the server-side projectile simulation run by {@link ProjectileAuthoritySystem}.
+ */
+public class ProjectileSimulationSettings {
+    /**
+     * Seconds between two write-backs of the simulated state into the {@code LocationComponent} of every projectile
+     * in flight. Hits and deactivations always write back immediately. 0 writes back every tick.
+     */
+    public float locationSyncInterval = 0;
+
+    /**
+     * Whether the kinematic step of each tick is computed on worker threads. Events are then dispatched by ascending
+     * entity id. When disabled, the tick runs entirely on the game thread in slot order.
+     */
+    public boolean parallelUpdate = false;
+
+    /**
+     * Whether the ray casts of a tick are spread over worker threads. Only honoured if the ray caster in use reports
+     * itself as thread safe, which the default {@link org.terasology.projectile.collision.PhysicsBatchRayCaster} does
+     * not; a thread safe caster has to be set with {@link ProjectileAuthoritySystem#setRayCaster}. Otherwise a warning
+     * is logged once and the casts stay on the main thread.
+     */
+    public boolean parallelRayCasts = false;
+
+    /**
+     * Number of worker threads used by parallel stages. 0 uses the common fork-join pool.
+     */
+    public int parallelism = 0;
+
+    /**
+     * Whether projectiles collide with each other, see {@link ProjectileCollisionEvent}.
+     */
+    public boolean projectileCollisions = false;
+
+    /**
+     * Whether projectiles follow closed-form ballistic trajectories evaluated from their launch parameters instead of
+     * being stepped tick by tick. The path then no longer depends on the tick rate.
+     */
+    public boolean analyticTrajectories = false;
+
+    /**
+     * Whether projectiles are slowed by quadratic air drag following their
+     * {@link ProjectileActionComponent#frictionCoefficient} and carried by the wind. Takes precedence over
+     * {@link #analyticTrajectories}, as drag has no closed form.
+     */
+    public boolean drag = false;
+
+    /**
+     * Scheme stepping projectiles under drag or with {@link #adaptiveSubsteps}.
+     */
+    public FlightIntegrator integrator = FlightIntegrator.MIDPOINT;
+
+    /**
+     * Number of substeps per tick of projectiles under drag. The benchmark reports the error and cost of each.
+     */
+    public int substeps = 1;
+
+    /**
+     * Whether the number of substeps per tick follows the speed of each projectile and the time it advances, so that
+     * no substep is longer than {@link #maxSubstepLength}. Applies to stepped projectiles with or without drag, which
+     * then fly the same arcs and sweep the same segments at low tick rates as at high ones. Each tick still casts a
+     * single ray per projectile.
+     */
+    public boolean adaptiveSubsteps = false;
+
+    /**
+     * Longest distance in blocks a projectile travels in one substep with {@link #adaptiveSubsteps}.
+     */
+    public float maxSubstepLength = 1;
+
+    /**
+     * Largest number of substeps per tick with {@link #adaptiveSubsteps}.
+     */
+    public int maxSubsteps = 32;
+
+    /**
+     * Whether every hit still sends a {@link HitTargetEvent} to the projectile before it is resolved, and every
+     * deactivation a {@link DeactivateProjectileEvent}, for systems listening to them. A listener consuming the
+     * {@link HitTargetEvent} resolves the hit itself. When disabled, hits are resolved by the
+     * {@link org.terasology.projectile.hit.HitResolverRegistry} alone and only the batched damage is sent as events.
+     */
+    public boolean hitEvents = true;
+
+    /**
+     * Whether projectiles without a {@link ProjectileUpdateSubscriptionComponent} receive a
+     * {@link ProjectileUpdateEvent} after every step, as all projectiles once did. The event is a single shared
+     * instance, but this still costs one dispatch per projectile and step. Disabled by default, so that projectiles
+     * nobody follows fly without any notification; servers running modules that listen to the event without
+     * subscribing their projectiles can enable it.
+     */
+    public boolean updateEventsForAll;
+
+    /**
+     * Milliseconds per tick the simulation aims to stay within. Once set, projectiles far from players are stepped
+     * less often and, under overload, only as many projectiles are stepped as the budget allows, preferring those
+     * which have waited longest. 0 steps every projectile every tick.
+     */
+    public float tickBudget = 0;
+
+    /**
+     * Distance from the nearest player within which a budgeted simulation steps projectiles every tick. Each further
+     * multiple of it adds a tick between steps.
+     */
+    public float fullRateDistance = 32;
+
+    /**
+     * Largest number of ticks between two steps of a distant projectile in a budgeted simulation.
+     */
+    public int maxStepInterval = 8;
+
+    /**
+     * Whether clients simulate projectile flight themselves from a {@link ProjectileSpawnEvent} instead of receiving
+     * a location update every sync. The server then only broadcasts a {@link ProjectileCorrectionEvent} after hits,
+     * when a projectile stops and when its state diverges from the trajectory clients simulate. Diverging is rare
+     * with {@link #analyticTrajectories}, which clients follow exactly.
+     */
+    public boolean compactReplication = false;
+
+    /**
+     * Distance between the authoritative and the client-simulated position of a projectile above which a correction
+     * is broadcast with compact replication.
+     */
+    public float correctionThreshold = 0.5f;
+
+    /**
+     * Whether projectiles are tested against characters where their shooter saw them rather than where they are now.
+     * The server then records the colliders of all characters every tick. Characters are rewound by the ping of the
+     * client of the shooter unless {@link ProjectileAuthoritySystem#setLatencyEstimator} replaces the estimate.
+     */
+    public boolean lagCompensation = false;
+
+    /**
+     * Largest latency in milliseconds lag compensation rewinds characters by.
+     */
+    public int maxRewind = 250;
+
+    /**
+     * Number of ticks of character colliders kept for lag compensation. Applies when it is first enabled.
+     */
+    public int historyFrames = 32;
+
+    /**
+     * Largest number of characters kept for lag compensation. Applies when it is first enabled. Further characters
+     * are hit where they are now, without compensation.
+     */
+    public int maxHistoryCharacters = 1024;
+}
@@ -0,0 +1,186 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.terasology.projectile.util.LongIntMap;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform grid over the slots of a {@link ProjectileStore}. Every occupied cell heads an intrusive doubly linked list
+ * of the slots inside it, so moving a projectile between cells, or a slot between indices, is constant time.
+ */
+class ProjectileSpatialHash {
+    private static final int NONE = -1;
+    private static final int COORDINATE_BITS = 21;
+    private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+    // the range of cell coordinates that packs without wrapping
+    private static final int MIN_CELL = -(1 << (COORDINATE_BITS - 1));
+    private static final int MAX_CELL = (1 << (COORDINATE_BITS - 1)) - 1;
+
+    private final float cellSize;
+    private final LongIntMap heads = new LongIntMap(NONE);
+
+    private long[] cells = new long[0];
+    private int[] next = new int[0];
+    private int[] previous = new int[0];
+
+    ProjectileSpatialHash(float cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    void insert(int slot, float x, float y, float z) {
+        ensureCapacity(slot + 1);
+        link(slot, cellKey(x, y, z));
+    }
+
+    void remove(int slot) {
+        unlink(slot);
+    }
+
+    /**
+     * Moves the slot into the cell of its new position if it left its current one.
+     */
+    void update(int slot, float x, float y, float z) {
+        long cell = cellKey(x, y, z);
+        if (cells[slot] != cell) {
+            unlink(slot);
+            link(slot, cell);
+        }
+    }
+
+    /**
+     * Makes {@code to} take the place of {@code from} in the grid, after the store moved a projectile between slots.
+     */
+    void move(int from, int to) {
+        ensureCapacity(to + 1);
+        cells[to] = cells[from];
+        previous[to] = previous[from];
+        next[to] = next[from];
+        if (previous[to] == NONE) {
+            heads.put(cells[to], to);
+        } else {
+            next[previous[to]] = to;
+        }
+        if (next[to] != NONE) {
+            previous[next[to]] = to;
+        }
+    }
+
+    void clear() {
+        heads.clear();
+    }
+
+    /**
+     * Calls the visitor for every slot in a cell overlapping the given box. Slots outside the box may be visited too.
+     * Bounds may be infinite; a box with a NaN bound, or a minimum above its maximum, is empty.
+     */
+    void visitCandidates(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, IntConsumer visitor) {
+        // also false for NaN bounds
+        if (!(minX <= maxX && minY <= maxY && minZ <= maxZ)) {
+            return;
+        }
+        int fromX = clampedCellCoordinate(minX);
+        int fromY = clampedCellCoordinate(minY);
+        int fromZ = clampedCellCoordinate(minZ);
+        int toX = clampedCellCoordinate(maxX);
+        int toY = clampedCellCoordinate(maxY);
+        int toZ = clampedCellCoordinate(maxZ);
+        long rowCells = ((long) toX - fromX + 1) * ((long) toY - fromY + 1);
+        // the area is compared first, as the volume of a box spanning the whole grid overflows a long
+        if (rowCells > heads.size() || rowCells * ((long) toZ - fromZ + 1) > heads.size()) {
+            // cheaper to test every occupied cell than every cell of the box
+            heads.forEach((cell, head) -> {
+                int x = unpack(cell >>> (2 * COORDINATE_BITS));
+                int y = unpack(cell >>> COORDINATE_BITS);
+                int z = unpack(cell);
+                if (x >= fromX && x <= toX && y >= fromY && y <= toY && z >= fromZ && z <= toZ) {
+                    visitCell(head, visitor);
+                }
+            });
+            return;
+        }
+        for (int x = fromX; x <= toX; x++) {
+            for (int y = fromY; y <= toY; y++) {
+                for (int z = fromZ; z <= toZ; z++) {
+                    visitCell(heads.get(pack(x, y, z)), visitor);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of cells containing at least one projectile
+     */
+    int occupiedCells() {
+        return heads.size();
+    }
+
+    private void visitCell(int head, IntConsumer visitor) {
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            visitor.accept(slot);
+        }
+    }
+
+    private void link(int slot, long cell) {
+        int head = heads.put(cell, slot);
+        cells[slot] = cell;
+        previous[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) {
+            previous[head] = slot;
+        }
+    }
+
+    private void unlink(int slot) {
+        if (previous[slot] == NONE) {
+            if (next[slot] == NONE) {
+                heads.remove(cells[slot]);
+            } else {
+                heads.put(cells[slot], next[slot]);
+            }
+        } else {
+            next[previous[slot]] = next[slot];
+        }
+        if (next[slot] != NONE) {
+            previous[next[slot]] = previous[slot];
+        }
+        previous[slot] = NONE;
+        next[slot] = NONE;
+    }
+
+    private long cellKey(float x, float y, float z) {
+        return pack(cellCoordinate(x), cellCoordinate(y), cellCoordinate(z));
+    }
+
+    private int cellCoordinate(float value) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    /**
+     * The cell coordinate of a query bound, clamped to the coordinates cells are packed with
+     */
+    private int clampedCellCoordinate(float value) {
+        return Math.max(MIN_CELL, Math.min(MAX_CELL, cellCoordinate(value)));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= cells.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, Math.max(64, cells.length * 2));
+        cells = Arrays.copyOf(cells, newCapacity);
+        next = Arrays.copyOf(next, newCapacity);
+        previous = Arrays.copyOf(previous, newCapacity);
+    }
+
+    private static long pack(int x, int y, int z) {
+        return ((x & COORDINATE_MASK) << (2 * COORDINATE_BITS)) | ((y & COORDINATE_MASK) << COORDINATE_BITS) | (z & COORDINATE_MASK);
+    }
+
+    private static int unpack(long bits) {
+        // sign-extend the 21 bit coordinate
+        return (int) ((bits & COORDINATE_MASK) << (64 - COORDINATE_BITS) >> (64 - COORDINATE_BITS));
+    }
+}
@@ -0,0 +1,37 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.joml.Vector3fc;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.List;
+
+/**
+ * Proximity queries over the projectiles currently in flight, answered from a uniform grid maintained by the
+ * projectile simulation instead of scanning every projectile entity. Available on the authority.
+ */
+public interface ProjectileSpatialIndex {
+
+    /**
+     * Adds every projectile within {@code radius} of {@code center} to {@code result}.
+     *
+     * @return the number of projectiles added
+     */
+    int findInRadius(Vector3fc center, float radius, List<EntityRef> result);
+
+    /**
+     * Adds every projectile inside the axis-aligned box spanned by {@code min} and {@code max} to {@code result}.
+     *
+     * @return the number of projectiles added
+     */
+    int findInBox(Vector3fc min, Vector3fc max, List<EntityRef> result);
+
+    /**
+     * Adds every projectile within {@code radius} of the segment starting at {@code origin} and extending
+     * {@code length} along the normalized {@code direction} to {@code result}.
+     *
+     * @return the number of projectiles added
+     */
+    int findAlongRay(Vector3fc origin, Vector3fc direction, float length, float radius, List<EntityRef> result);
+}
@@ -0,0 +1,55 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.joml.Vector3f;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.network.BroadcastEvent;
+import org.terasology.gestalt.entitysystem.event.Event;
+
+/**
+ * Broadcast once when a projectile enters flight with compact replication enabled in the
+ * {@link ProjectileSimulationSettings}. Clients simulate the trajectory from it instead of receiving location updates.
+ */
+@BroadcastEvent
+public class ProjectileSpawnEvent implements Event {
+    private Vector3f origin;
+    private Vector3f velocity;
+    private long launchTime;
+    private Prefab prefab;
+
+    protected ProjectileSpawnEvent() {
+    }
+
+    public ProjectileSpawnEvent(Vector3f origin, Vector3f velocity, long launchTime, Prefab prefab) {
+        this.origin = origin;
+        this.velocity = velocity;
+        this.launchTime = launchTime;
+        this.prefab = prefab;
+    }
+
+    /**
+     * @return the position of the projectile at the launch time
+     */
+    public Vector3f getOrigin() {
+        return origin;
+    }
+
+    /**
+     * @return the velocity of the projectile at the launch time
+     */
+    public Vector3f getVelocity() {
+        return velocity;
+    }
+
+    /**
+     * @return the game time in milliseconds the trajectory starts at
+     */
+    public long getLaunchTime() {
+        return launchTime;
+    }
+
+    public Prefab getPrefab() {
+        return prefab;
+    }
+}
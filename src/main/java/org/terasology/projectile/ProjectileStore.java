@@ -0,0 +1,1024 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.projectile.collision.RaySegmentBatch;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * In-memory simulation state of all projectiles in flight.
+ * <p>
+ * Kinematic state and the per-type parameters copied from {@link ProjectileActionComponent} are kept in primitive
+ * arrays indexed by a dense slot id, so that a tick can step every projectile without touching the entity system.
+ * Vector quantities are packed with a stride of three ({@code x, y, z}).
+ * <p>
+ * Slots removed while a tick is running are only marked dead and are compacted away in {@link #endTick()}, so slot
+ * ids stay stable for the duration of a tick.
+ */
+public class ProjectileStore {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final float CELL_SIZE = 8;
+
+    /**
+     * Converts {@link ProjectileActionComponent#frictionCoefficient} into the deceleration per squared unit of speed
+     */
+    public static final float DRAG_SCALE = 0.01f;
+
+    private final Map<EntityRef, Integer> slots = new HashMap<>();
+    private final ProjectileSpatialHash spatialHash = new ProjectileSpatialHash(CELL_SIZE);
+
+    private EntityRef[] entities = new EntityRef[INITIAL_CAPACITY];
+    // entity ids, read once on add so that ticks do not call into the entity system
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private boolean[] live = new boolean[INITIAL_CAPACITY];
+
+    private float[] position = new float[INITIAL_CAPACITY * 3];
+    private float[] velocity = new float[INITIAL_CAPACITY * 3];
+    private float[] direction = new float[INITIAL_CAPACITY * 3];
+    private float[] distanceTravelled = new float[INITIAL_CAPACITY];
+    private float[] launchPosition = new float[INITIAL_CAPACITY * 3];
+    private float[] launchVelocity = new float[INITIAL_CAPACITY * 3];
+    private float[] flightTime = new float[INITIAL_CAPACITY];
+
+    private float[] initialOrientation = new float[INITIAL_CAPACITY * 3];
+    private float[] maxDistance = new float[INITIAL_CAPACITY];
+    private boolean[] affectedByGravity = new boolean[INITIAL_CAPACITY];
+    private boolean[] reusable = new boolean[INITIAL_CAPACITY];
+    private float[] collisionRadius = new float[INITIAL_CAPACITY];
+    private float[] dragCoefficient = new float[INITIAL_CAPACITY];
+
+    private float[] stepLength = new float[INITIAL_CAPACITY];
+    private float[] nextPosition = new float[INITIAL_CAPACITY * 3];
+    private float[] nextVelocity = new float[INITIAL_CAPACITY * 3];
+    private float[] nextDistanceTravelled = new float[INITIAL_CAPACITY];
+    private float[] nextFlightTime = new float[INITIAL_CAPACITY];
+    private int[] segment = new int[INITIAL_CAPACITY];
+    private float[] wind = new float[INITIAL_CAPACITY * 3];
+
+    private float[] pendingTime = new float[INITIAL_CAPACITY];
+    private boolean[] scheduled = new boolean[INITIAL_CAPACITY];
+    private long[] scheduleKeys = new long[INITIAL_CAPACITY];
+
+    private EntityRef[] shooters = new EntityRef[INITIAL_CAPACITY];
+    private int[] shooterLatency = new int[INITIAL_CAPACITY];
+
+    // negative for projectiles without update subscription
+    private float[] updateInterval = new float[INITIAL_CAPACITY];
+    private float[] sinceUpdate = new float[INITIAL_CAPACITY];
+    private boolean[] updateEvent = new boolean[INITIAL_CAPACITY];
+
+    private int[] order = new int[INITIAL_CAPACITY];
+    private long[] orderKeys = new long[INITIAL_CAPACITY];
+
+    private int size;
+    private boolean ticking;
+    private boolean pendingCompaction;
+    private boolean analyticTrajectories;
+    private boolean drag;
+    private FlightIntegrator integrator = FlightIntegrator.MIDPOINT;
+    private int substeps = 1;
+    private WindField windField = WindField.CALM;
+    private boolean adaptiveSubsteps;
+    private float maxSubstepLength = 1;
+    private int maxSubsteps = 1;
+    private final float[] predictedPosition = new float[3];
+    private final float[] predictedVelocity = new float[3];
+    private final ContactFinder contactFinder = new ContactFinder();
+
+    /**
+     * Registers a projectile in flight and returns its slot. Its trajectory is anchored at the current position and
+     * velocity.
+     */
+    public int add(EntityRef entity, Vector3fc pos, Vector3fc vel, float distance, ProjectileActionComponent action) {
+        return add(entity, pos, vel, distance, action, pos, vel, 0);
+    }
+
+    /**
+     * Registers a projectile in flight and returns its slot.
+     *
+     * @param launchPos where the projectile was launched
+     * @param launchVel the velocity it was launched with
+     * @param time seconds since the launch, used by analytic trajectories
+     */
+    public int add(EntityRef entity, Vector3fc pos, Vector3fc vel, float distance, ProjectileActionComponent action,
+                   Vector3fc launchPos, Vector3fc launchVel, float time) {
+        if (slots.containsKey(entity)) {
+            remove(entity);
+        }
+        ensureCapacity(size + 1);
+        int slot = size++;
+        entities[slot] = entity;
+        ids[slot] = entity.getId();
+        live[slot] = true;
+        set(position, slot, pos);
+        set(velocity, slot, vel);
+        set(direction, slot, vel);
+        normalize(direction, slot);
+        distanceTravelled[slot] = distance;
+        set(launchPosition, slot, launchPos);
+        set(launchVelocity, slot, launchVel);
+        flightTime[slot] = time;
+        stepLength[slot] = 0;
+        segment[slot] = -1;
+        pendingTime[slot] = 0;
+        scheduled[slot] = false;
+        shooters[slot] = null;
+        shooterLatency[slot] = 0;
+        updateInterval[slot] = -1;
+        sinceUpdate[slot] = 0;
+        updateEvent[slot] = false;
+        setParameters(slot, action);
+        slots.put(entity, slot);
+        spatialHash.insert(slot, pos.x(), pos.y(), pos.z());
+        return slot;
+    }
+
+    /**
+     * Refreshes the per-type parameters of a projectile after its {@link ProjectileActionComponent} changed.
+     */
+    public void updateParameters(EntityRef entity, ProjectileActionComponent action) {
+        int slot = getSlot(entity);
+        if (slot != -1) {
+            setParameters(slot, action);
+        }
+    }
+
+    /**
+     * Removes a projectile. While a tick is running the slot is only marked dead, otherwise the last slot is moved
+     * into the gap.
+     *
+     * @return whether the entity was registered
+     */
+    public boolean remove(EntityRef entity) {
+        Integer slot = slots.remove(entity);
+        if (slot == null) {
+            return false;
+        }
+        live[slot] = false;
+        entities[slot] = EntityRef.NULL;
+        shooters[slot] = null;
+        spatialHash.remove(slot);
+        if (ticking) {
+            pendingCompaction = true;
+            return true;
+        }
+        int last = --size;
+        if (slot != last) {
+            move(last, slot);
+            slots.put(entities[slot], slot);
+        }
+        entities[last] = EntityRef.NULL;
+        shooters[last] = null;
+        live[last] = false;
+        return true;
+    }
+
+    public void clear() {
+        slots.clear();
+        spatialHash.clear();
+        Arrays.fill(entities, 0, size, EntityRef.NULL);
+        Arrays.fill(live, 0, size, false);
+        Arrays.fill(shooters, 0, size, null);
+        size = 0;
+        pendingCompaction = false;
+    }
+
+    public void beginTick() {
+        ticking = true;
+    }
+
+    public void endTick() {
+        ticking = false;
+        if (pendingCompaction) {
+            compact();
+        }
+    }
+
+    /**
+     * Schedules every live projectile to advance by the tick length.
+     *
+     * @return the number of scheduled projectiles
+     */
+    public int scheduleAll(float delta) {
+        int count = 0;
+        for (int slot = 0; slot < size; slot++) {
+            scheduled[slot] = live[slot];
+            if (live[slot]) {
+                pendingTime[slot] += delta;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Schedules at most {@code maxSteps} projectiles for this tick. A projectile within {@code fullRateDistance} of
+     * an observer is due every tick, one further away only every few ticks, up to {@code maxInterval}, and then
+     * advances by all the time it skipped in one swept step. When more projectiles are due than fit into the tick,
+     * the ones which have waited longest relative to their interval go first, so nothing is starved.
+     *
+     * @param observers packed positions of the observers, usually the player characters
+     * @return the number of scheduled projectiles
+     */
+    public int schedule(float delta, int maxSteps, float[] observers, int observerCount, float fullRateDistance,
+                        int maxInterval) {
+        if (scheduleKeys.length < size) {
+            scheduleKeys = new long[Math.max(size, scheduleKeys.length * 2)];
+        }
+        int due = 0;
+        for (int slot = 0; slot < size; slot++) {
+            scheduled[slot] = false;
+            if (!live[slot]) {
+                continue;
+            }
+            pendingTime[slot] += delta;
+            float distance = (float) Math.sqrt(distanceSquaredToNearest(slot, observers, observerCount));
+            int interval = Math.max(1, Math.min(maxInterval, 1 + (int) (distance / fullRateDistance)));
+            // half a tick of tolerance so that float drift does not postpone a step by a whole tick
+            if (pendingTime[slot] + delta / 2 < interval * delta) {
+                continue;
+            }
+            float priority = pendingTime[slot] / interval;
+            // positive floats order like their bits, which leaves the low 24 bits for the slot
+            scheduleKeys[due++] = ((long) Float.floatToIntBits(priority) << 24) | slot;
+        }
+        int first = 0;
+        if (due > maxSteps) {
+            Arrays.sort(scheduleKeys, 0, due);
+            first = due - maxSteps;
+        }
+        for (int k = first; k < due; k++) {
+            scheduled[(int) (scheduleKeys[k] & 0xFFFFFF)] = true;
+        }
+        return due - first;
+    }
+
+    private float distanceSquaredToNearest(int slot, float[] observers, int observerCount) {
+        if (observerCount == 0) {
+            return 0;
+        }
+        int i = slot * 3;
+        float nearest = Float.POSITIVE_INFINITY;
+        for (int o = 0; o < observerCount * 3; o += 3) {
+            float dx = observers[o] - position[i];
+            float dy = observers[o + 1] - position[i + 1];
+            float dz = observers[o + 2] - position[i + 2];
+            nearest = Math.min(nearest, dx * dx + dy * dy + dz * dz);
+        }
+        return nearest;
+    }
+
+    /**
+     * Computes direction, step length and the candidate state for the scheduled projectiles in slots
+     * {@code [from, to)}, each advanced by the time it has been waiting since its last step. The candidate state only
+     * replaces the current one in {@link #commitStep(int)}, so disjoint ranges can be prepared concurrently.
+     */
+    public void prepareStep(int from, int to, float gravity, float terminalVelocity) {
+        for (int slot = from; slot < to; slot++) {
+            if (!scheduled[slot] || !live[slot]) {
+                continue;
+            }
+            float delta = pendingTime[slot];
+            if (drag || adaptiveSubsteps && !analyticTrajectories) {
+                int steps = adaptiveSubsteps ? getAdaptiveSubsteps(slot, delta) : substeps;
+                prepareIntegratedStep(slot, delta, steps, gravity, terminalVelocity);
+            } else if (analyticTrajectories) {
+                prepareAnalyticStep(slot, delta, gravity, terminalVelocity);
+            } else {
+                prepareEulerStep(slot, delta, gravity, terminalVelocity);
+            }
+        }
+    }
+
+    private void prepareEulerStep(int slot, float delta, float gravity, float terminalVelocity) {
+        int i = slot * 3;
+        float vx = velocity[i];
+        float vy = velocity[i + 1];
+        float vz = velocity[i + 2];
+        float speed = (float) Math.sqrt(vx * vx + vy * vy + vz * vz);
+        if (speed > 0) {
+            direction[i] = vx / speed;
+            direction[i + 1] = vy / speed;
+            direction[i + 2] = vz / speed;
+        }
+        stepLength[slot] = Math.min(speed * delta, maxDistance[slot] - distanceTravelled[slot]);
+
+        nextPosition[i] = position[i] + vx * delta;
+        nextPosition[i + 1] = position[i + 1] + vy * delta;
+        nextPosition[i + 2] = position[i + 2] + vz * delta;
+        nextVelocity[i] = vx;
+        nextVelocity[i + 1] = vy;
+        nextVelocity[i + 2] = vz;
+        if (affectedByGravity[slot] && Math.abs(vy) < terminalVelocity) {
+            nextVelocity[i + 1] = vy - gravity * delta;
+        }
+        nextDistanceTravelled[slot] = distanceTravelled[slot] + stepLength[slot];
+        nextFlightTime[slot] = flightTime[slot] + delta;
+    }
+
+    /**
+     * The number of substeps that keeps each at most {@link #maxSubstepLength} long at the current speed. A single
+     * midpoint step is exact under gravity alone, so projectiles without drag only need more with the Euler schemes.
+     */
+    private int getAdaptiveSubsteps(int slot, float delta) {
+        if (integrator == FlightIntegrator.MIDPOINT && (!drag || dragCoefficient[slot] == 0)) {
+            return 1;
+        }
+        float steps = (float) Math.ceil(speed(slot) * delta / maxSubstepLength);
+        return (int) Math.max(1, Math.min(maxSubsteps, steps));
+    }
+
+    /**
+     * Integrates gravity, and quadratic drag against the wind if enabled, over the tick in the given number of
+     * substeps and sweeps the chord between the current and the new position, so one ray cast covers all substeps.
+     * The substeps bend away from the chord by at most an eighth of the largest acceleration times the squared tick
+     * length, under a hundredth of a block for {@link ProjectileAuthoritySystem#G} alone even at 5 ticks per second.
+     * The wind is sampled once per tick at the current position.
+     */
+    private void prepareIntegratedStep(int slot, float delta, int steps, float gravity, float terminalVelocity) {
+        int i = slot * 3;
+        float px = position[i];
+        float py = position[i + 1];
+        float pz = position[i + 2];
+        float vx = velocity[i];
+        float vy = velocity[i + 1];
+        float vz = velocity[i + 2];
+        float k = 0;
+        float wx = 0;
+        float wy = 0;
+        float wz = 0;
+        if (drag) {
+            windField.getWind(px, py, pz, wind, i);
+            wx = wind[i];
+            wy = wind[i + 1];
+            wz = wind[i + 2];
+            k = dragCoefficient[slot];
+        }
+        float g = affectedByGravity[slot] ? gravity : 0;
+        float h = delta / steps;
+
+        for (int step = 0; step < steps; step++) {
+            // acceleration at the start of the substep
+            float rx = vx - wx;
+            float ry = vy - wy;
+            float rz = vz - wz;
+            float kr = k > 0 ? k * (float) Math.sqrt(rx * rx + ry * ry + rz * rz) : 0;
+            float ax = -kr * rx;
+            float ay = -kr * ry - (vy > -terminalVelocity ? g : 0);
+            float az = -kr * rz;
+            switch (integrator) {
+                case EULER:
+                    px += vx * h;
+                    py += vy * h;
+                    pz += vz * h;
+                    vx += ax * h;
+                    vy += ay * h;
+                    vz += az * h;
+                    break;
+                case SEMI_IMPLICIT_EULER:
+                    vx += ax * h;
+                    vy += ay * h;
+                    vz += az * h;
+                    px += vx * h;
+                    py += vy * h;
+                    pz += vz * h;
+                    break;
+                default:
+                    float mx = vx + ax * h / 2;
+                    float my = vy + ay * h / 2;
+                    float mz = vz + az * h / 2;
+                    rx = mx - wx;
+                    ry = my - wy;
+                    rz = mz - wz;
+                    kr = k > 0 ? k * (float) Math.sqrt(rx * rx + ry * ry + rz * rz) : 0;
+                    px += mx * h;
+                    py += my * h;
+                    pz += mz * h;
+                    vx -= kr * rx * h;
+                    vy -= (kr * ry + (my > -terminalVelocity ? g : 0)) * h;
+                    vz -= kr * rz * h;
+            }
+        }
+        nextPosition[i] = px;
+        nextPosition[i + 1] = py;
+        nextPosition[i + 2] = pz;
+        nextVelocity[i] = vx;
+        nextVelocity[i + 1] = vy;
+        nextVelocity[i + 2] = vz;
+
+        float dx = px - position[i];
+        float dy = py - position[i + 1];
+        float dz = pz - position[i + 2];
+        float chord = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (chord > 0) {
+            direction[i] = dx / chord;
+            direction[i + 1] = dy / chord;
+            direction[i + 2] = dz / chord;
+        }
+        stepLength[slot] = Math.min(chord, maxDistance[slot] - distanceTravelled[slot]);
+        nextDistanceTravelled[slot] = distanceTravelled[slot] + stepLength[slot];
+        nextFlightTime[slot] = flightTime[slot] + delta;
+    }
+
+    /**
+     * Evaluates the trajectory in closed form at the end of the tick and sweeps the chord of the arc covered since the
+     * last tick, so the path does not depend on the tick rate.
+     */
+    private void prepareAnalyticStep(int slot, float delta, float gravity, float terminalVelocity) {
+        int i = slot * 3;
+        float t = flightTime[slot] + delta;
+        evaluateTrajectory(slot, t, gravity, terminalVelocity, nextPosition, nextVelocity, i);
+
+        float dx = nextPosition[i] - position[i];
+        float dy = nextPosition[i + 1] - position[i + 1];
+        float dz = nextPosition[i + 2] - position[i + 2];
+        float chord = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (chord > 0) {
+            direction[i] = dx / chord;
+            direction[i + 1] = dy / chord;
+            direction[i + 2] = dz / chord;
+        }
+        stepLength[slot] = Math.min(chord, maxDistance[slot] - distanceTravelled[slot]);
+        nextDistanceTravelled[slot] = distanceTravelled[slot] + stepLength[slot];
+        nextFlightTime[slot] = t;
+    }
+
+    /**
+     * Writes position and velocity of the projectile {@code t} seconds after its launch into the given arrays, starting
+     * at index {@code d}. Gravity decelerates the vertical velocity until it reaches the terminal velocity.
+     */
+    private void evaluateTrajectory(int slot, float t, float gravity, float terminalVelocity,
+                                    float[] positionDest, float[] velocityDest, int d) {
+        int i = slot * 3;
+        float vx = launchVelocity[i];
+        float vy = launchVelocity[i + 1];
+        float vz = launchVelocity[i + 2];
+        positionDest[d] = launchPosition[i] + vx * t;
+        positionDest[d + 2] = launchPosition[i + 2] + vz * t;
+        velocityDest[d] = vx;
+        velocityDest[d + 2] = vz;
+
+        if (!affectedByGravity[slot] || gravity <= 0 || vy <= -terminalVelocity) {
+            positionDest[d + 1] = launchPosition[i + 1] + vy * t;
+            velocityDest[d + 1] = vy;
+            return;
+        }
+        float terminalTime = (vy + terminalVelocity) / gravity;
+        if (t <= terminalTime) {
+            positionDest[d + 1] = launchPosition[i + 1] + vy * t - gravity * t * t / 2;
+            velocityDest[d + 1] = vy - gravity * t;
+        } else {
+            positionDest[d + 1] = launchPosition[i + 1] + vy * terminalTime - gravity * terminalTime * terminalTime / 2
+                    - terminalVelocity * (t - terminalTime);
+            velocityDest[d + 1] = -terminalVelocity;
+        }
+    }
+
+    /**
+     * Adds the segment every live projectile that has not expired sweeps during this tick to the batch, lengthened by
+     * the given padding.
+     */
+    public void collectSegments(RaySegmentBatch batch, float padding) {
+        for (int slot = 0; slot < size; slot++) {
+            if (!live[slot] || !scheduled[slot] || hasExpired(slot)) {
+                segment[slot] = -1;
+                continue;
+            }
+            int i = slot * 3;
+            segment[slot] = batch.add(slot, position[i], position[i + 1], position[i + 2],
+                    direction[i], direction[i + 1], direction[i + 2], stepLength[slot] + padding);
+            batch.setShooter(segment[slot], shooters[slot], shooterLatency[slot]);
+        }
+    }
+
+    /**
+     * Replaces the state of a projectile by the candidate state computed in
+     * {@link #prepareStep(int, int, float, float)}.
+     */
+    public void commitStep(int slot) {
+        System.arraycopy(nextPosition, slot * 3, position, slot * 3, 3);
+        System.arraycopy(nextVelocity, slot * 3, velocity, slot * 3, 3);
+        distanceTravelled[slot] = nextDistanceTravelled[slot];
+        flightTime[slot] = nextFlightTime[slot];
+        pendingTime[slot] = 0;
+        int i = slot * 3;
+        spatialHash.update(slot, position[i], position[i + 1], position[i + 2]);
+    }
+
+    /**
+     * Returns the slots {@code [0, count)} in the order their events are dispatched: by slot, or by ascending entity id
+     * to keep dispatch reproducible regardless of insertion order. The returned array is reused by later calls.
+     */
+    public int[] dispatchOrder(int count, boolean byEntityId) {
+        if (order.length < count) {
+            order = new int[Math.max(count, order.length * 2)];
+            orderKeys = new long[order.length];
+        }
+        if (!byEntityId) {
+            for (int slot = 0; slot < count; slot++) {
+                order[slot] = slot;
+            }
+            return order;
+        }
+        for (int slot = 0; slot < count; slot++) {
+            // dead slots sort last; ids are far below 2^39 so they fit next to a 24 bit slot
+            long id = live[slot] ? ids[slot] : (1L << 39) - 1;
+            orderKeys[slot] = (id << 24) | slot;
+        }
+        Arrays.sort(orderKeys, 0, count);
+        for (int k = 0; k < count; k++) {
+            order[k] = (int) (orderKeys[k] & 0xFFFFFF);
+        }
+        return order;
+    }
+
+    /**
+     * @return the index of the segment of the slot in the batch last filled by {@link #collectSegments}, or -1
+     */
+    public int getSegment(int slot) {
+        return segment[slot];
+    }
+
+    /**
+     * Switches between stepping projectiles with Euler integration and evaluating their trajectories in closed form
+     * from the launch parameters.
+     */
+    public void setAnalyticTrajectories(boolean analyticTrajectories) {
+        this.analyticTrajectories = analyticTrajectories;
+    }
+
+    /**
+     * Switches to stepping projectiles under gravity and quadratic drag with the given integrator and number of
+     * substeps per tick, which takes precedence over analytic trajectories. The drag of a projectile is its
+     * {@link ProjectileActionComponent#frictionCoefficient} times {@link #DRAG_SCALE}, against the wind of the field.
+     */
+    public void setFlightModel(boolean drag, FlightIntegrator integrator, int substeps, WindField windField) {
+        this.drag = drag;
+        this.integrator = integrator;
+        this.substeps = Math.max(1, substeps);
+        this.windField = windField;
+    }
+
+    /**
+     * Switches to integrating projectiles in as many substeps per tick as keep each substep at most
+     * {@code maxSubstepLength} long, up to {@code maxSubsteps}, with the integrator of the flight model. This replaces
+     * the fixed number of substeps under drag, and stepping by Euler otherwise; analytic trajectories are exact and
+     * stay as they are. Every tick still sweeps a single segment.
+     */
+    public void setAdaptiveSubsteps(boolean adaptive, float maxSubstepLength, int maxSubsteps) {
+        this.adaptiveSubsteps = adaptive;
+        this.maxSubstepLength = maxSubstepLength > 0 ? maxSubstepLength : Float.POSITIVE_INFINITY;
+        this.maxSubsteps = Math.max(1, maxSubsteps);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The number of projectiles the arrays hold before they have to grow.
+     */
+    int capacity() {
+        return entities.length;
+    }
+
+    /**
+     * The number of projectiles in flight, unlike {@link #size()} not counting slots removed during the current tick.
+     */
+    public int liveCount() {
+        return slots.size();
+    }
+
+    /**
+     * @return the slot of the entity, or -1 if it is not in flight
+     */
+    public int getSlot(EntityRef entity) {
+        Integer slot = slots.get(entity);
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * The distance between the current position of the projectile and the position its closed-form trajectory from
+     * the launch parameters predicts, which is what clients simulate with compact replication.
+     */
+    public float getPredictionError(int slot, float gravity, float terminalVelocity) {
+        evaluateTrajectory(slot, flightTime[slot], gravity, terminalVelocity, predictedPosition, predictedVelocity, 0);
+        int i = slot * 3;
+        float dx = predictedPosition[0] - position[i];
+        float dy = predictedPosition[1] - position[i + 1];
+        float dz = predictedPosition[2] - position[i + 2];
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Restarts the trajectory of the projectile from its current position and velocity.
+     */
+    public void reanchor(int slot) {
+        System.arraycopy(position, slot * 3, launchPosition, slot * 3, 3);
+        System.arraycopy(velocity, slot * 3, launchVelocity, slot * 3, 3);
+        flightTime[slot] = 0;
+    }
+
+    /**
+     * Moves the projectile and restarts its trajectory from there. Called while its step is being resolved, the move
+     * replaces the outcome of the step.
+     */
+    public void setPosition(int slot, Vector3fc pos) {
+        set(position, slot, pos);
+        set(nextPosition, slot, pos);
+        spatialHash.update(slot, pos.x(), pos.y(), pos.z());
+        reanchor(slot);
+    }
+
+    /**
+     * Changes the velocity of the projectile and restarts its trajectory with it. Called while its step is being
+     * resolved, the change replaces the outcome of the step.
+     */
+    public void setVelocity(int slot, Vector3fc vel) {
+        set(velocity, slot, vel);
+        set(nextVelocity, slot, vel);
+        set(direction, slot, vel);
+        normalize(direction, slot);
+        reanchor(slot);
+    }
+
+    /**
+     * Records who fired the projectile and the latency of their view, see {@link RaySegmentBatch#setShooter}.
+     */
+    public void setShooter(int slot, EntityRef shooter, int latency) {
+        shooters[slot] = shooter;
+        shooterLatency[slot] = latency;
+    }
+
+    /**
+     * @return who fired the projectile, or null if unknown
+     */
+    public EntityRef getShooter(int slot) {
+        return shooters[slot];
+    }
+
+    /**
+     * Subscribes the projectile to update notifications every {@code interval} seconds, or unsubscribes it if the
+     * interval is negative.
+     *
+     * @param event whether the notifications include a {@link ProjectileUpdateEvent}
+     */
+    public void setUpdateSubscription(int slot, float interval, boolean event) {
+        updateInterval[slot] = interval;
+        sinceUpdate[slot] = 0;
+        updateEvent[slot] = event;
+    }
+
+    /**
+     * Advances the time since the last update notification of a subscribed projectile by the tick length.
+     *
+     * @return whether the projectile stepped in this tick and its subscription interval has passed, which restarts it
+     */
+    public boolean isDueForUpdate(int slot, float delta) {
+        if (updateInterval[slot] < 0) {
+            return false;
+        }
+        sinceUpdate[slot] += delta;
+        if (!isScheduled(slot) || sinceUpdate[slot] < updateInterval[slot]) {
+            return false;
+        }
+        sinceUpdate[slot] = 0;
+        return true;
+    }
+
+    public boolean hasUpdateSubscription(int slot) {
+        return updateInterval[slot] >= 0;
+    }
+
+    public boolean hasUpdateEvent(int slot) {
+        return updateEvent[slot];
+    }
+
+    /**
+     * Whether the projectile advances in the current tick.
+     */
+    public boolean isScheduled(int slot) {
+        return scheduled[slot] && live[slot];
+    }
+
+    public boolean isLive(int slot) {
+        return live[slot];
+    }
+
+    public EntityRef getEntity(int slot) {
+        return entities[slot];
+    }
+
+    public boolean hasExpired(int slot) {
+        return distanceTravelled[slot] >= maxDistance[slot];
+    }
+
+    public boolean isReusable(int slot) {
+        return reusable[slot];
+    }
+
+    public float getStepLength(int slot) {
+        return stepLength[slot];
+    }
+
+    public float getDistanceTravelled(int slot) {
+        return distanceTravelled[slot];
+    }
+
+    public Vector3f getPosition(int slot, Vector3f dest) {
+        return get(position, slot, dest);
+    }
+
+    public Vector3f getVelocity(int slot, Vector3f dest) {
+        return get(velocity, slot, dest);
+    }
+
+    public Vector3f getDirection(int slot, Vector3f dest) {
+        return get(direction, slot, dest);
+    }
+
+    public Vector3f getInitialOrientation(int slot, Vector3f dest) {
+        return get(initialOrientation, slot, dest);
+    }
+
+    /**
+     * Finds every pair of scheduled projectiles among slots {@code [0, count)} that come within the sum of their
+     * collision radii of each other during the shorter of their steps, assuming both move linearly. Candidates come from the
+     * spatial hash, so the cost grows with the number of projectiles close to each other rather than quadratically.
+     * Must be called after {@link #prepareStep}.
+     */
+    void collectContacts(int count, ProjectileContacts contacts) {
+        contacts.reset(count);
+        float maxRadius = 0;
+        float maxStep = 0;
+        for (int slot = 0; slot < count; slot++) {
+            if (isScheduled(slot)) {
+                maxRadius = Math.max(maxRadius, collisionRadius[slot]);
+                maxStep = Math.max(maxStep, speed(slot) * pendingTime[slot]);
+            }
+        }
+        if (maxRadius <= 0) {
+            return;
+        }
+        ContactFinder finder = contactFinder;
+        finder.count = count;
+        finder.contacts = contacts;
+        for (int slot = 0; slot < count; slot++) {
+            if (!isScheduled(slot) || collisionRadius[slot] <= 0) {
+                continue;
+            }
+            int i = slot * 3;
+            // no partner can be further away than both radii plus both displacements
+            float reach = collisionRadius[slot] + maxRadius + speed(slot) * pendingTime[slot] + maxStep;
+            finder.slot = slot;
+            spatialHash.visitCandidates(position[i] - reach, position[i + 1] - reach, position[i + 2] - reach,
+                    position[i] + reach, position[i + 1] + reach, position[i + 2] + reach, finder);
+        }
+        finder.contacts = null;
+    }
+
+    /**
+     * @see ProjectileSpatialIndex#findInRadius
+     */
+    public int findInRadius(Vector3fc center, float radius, List<EntityRef> result) {
+        float cx = center.x();
+        float cy = center.y();
+        float cz = center.z();
+        float radiusSquared = radius * radius;
+        int before = result.size();
+        spatialHash.visitCandidates(cx - radius, cy - radius, cz - radius, cx + radius, cy + radius, cz + radius, slot -> {
+            int i = slot * 3;
+            float dx = position[i] - cx;
+            float dy = position[i + 1] - cy;
+            float dz = position[i + 2] - cz;
+            if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+                result.add(entities[slot]);
+            }
+        });
+        return result.size() - before;
+    }
+
+    /**
+     * @see ProjectileSpatialIndex#findInBox
+     */
+    public int findInBox(Vector3fc min, Vector3fc max, List<EntityRef> result) {
+        int before = result.size();
+        spatialHash.visitCandidates(min.x(), min.y(), min.z(), max.x(), max.y(), max.z(), slot -> {
+            int i = slot * 3;
+            if (position[i] >= min.x() && position[i] <= max.x()
+                    && position[i + 1] >= min.y() && position[i + 1] <= max.y()
+                    && position[i + 2] >= min.z() && position[i + 2] <= max.z()) {
+                result.add(entities[slot]);
+            }
+        });
+        return result.size() - before;
+    }
+
+    /**
+     * @see ProjectileSpatialIndex#findAlongRay
+     */
+    public int findAlongRay(Vector3fc origin, Vector3fc dir, float length, float radius, List<EntityRef> result) {
+        float ox = origin.x();
+        float oy = origin.y();
+        float oz = origin.z();
+        float ex = ox + dir.x() * length;
+        float ey = oy + dir.y() * length;
+        float ez = oz + dir.z() * length;
+        float radiusSquared = radius * radius;
+        int before = result.size();
+        spatialHash.visitCandidates(Math.min(ox, ex) - radius, Math.min(oy, ey) - radius, Math.min(oz, ez) - radius,
+                Math.max(ox, ex) + radius, Math.max(oy, ey) + radius, Math.max(oz, ez) + radius, slot -> {
+                    int i = slot * 3;
+                    float px = position[i] - ox;
+                    float py = position[i + 1] - oy;
+                    float pz = position[i + 2] - oz;
+                    // distance to the closest point of the segment
+                    float t = Math.max(0, Math.min(length, px * dir.x() + py * dir.y() + pz * dir.z()));
+                    float dx = px - dir.x() * t;
+                    float dy = py - dir.y() * t;
+                    float dz = pz - dir.z() * t;
+                    if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+                        result.add(entities[slot]);
+                    }
+                });
+        return result.size() - before;
+    }
+
+    private float speed(int slot) {
+        int i = slot * 3;
+        return (float) Math.sqrt(velocity[i] * velocity[i] + velocity[i + 1] * velocity[i + 1] + velocity[i + 2] * velocity[i + 2]);
+    }
+
+    private void setParameters(int slot, ProjectileActionComponent action) {
+        set(initialOrientation, slot, action.initialOrientation);
+        // a max distance of -1 means the projectile flies until it hits something
+        maxDistance[slot] = action.maxDistance == -1 ? Float.POSITIVE_INFINITY : action.maxDistance;
+        affectedByGravity[slot] = action.affectedByGravity;
+        reusable[slot] = action.reusable;
+        collisionRadius[slot] = action.collisionRadius;
+        dragCoefficient[slot] = Math.max(0, action.frictionCoefficient) * DRAG_SCALE;
+    }
+
+    private void compact() {
+        int target = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (!live[slot]) {
+                continue;
+            }
+            if (slot != target) {
+                move(slot, target);
+                slots.put(entities[target], target);
+            }
+            target++;
+        }
+        Arrays.fill(entities, target, size, EntityRef.NULL);
+        Arrays.fill(live, target, size, false);
+        Arrays.fill(shooters, target, size, null);
+        size = target;
+        pendingCompaction = false;
+    }
+
+    private void move(int from, int to) {
+        spatialHash.move(from, to);
+        entities[to] = entities[from];
+        ids[to] = ids[from];
+        live[to] = live[from];
+        System.arraycopy(position, from * 3, position, to * 3, 3);
+        System.arraycopy(velocity, from * 3, velocity, to * 3, 3);
+        System.arraycopy(direction, from * 3, direction, to * 3, 3);
+        System.arraycopy(initialOrientation, from * 3, initialOrientation, to * 3, 3);
+        distanceTravelled[to] = distanceTravelled[from];
+        System.arraycopy(launchPosition, from * 3, launchPosition, to * 3, 3);
+        System.arraycopy(launchVelocity, from * 3, launchVelocity, to * 3, 3);
+        flightTime[to] = flightTime[from];
+        nextFlightTime[to] = nextFlightTime[from];
+        maxDistance[to] = maxDistance[from];
+        affectedByGravity[to] = affectedByGravity[from];
+        reusable[to] = reusable[from];
+        collisionRadius[to] = collisionRadius[from];
+        dragCoefficient[to] = dragCoefficient[from];
+        stepLength[to] = stepLength[from];
+        System.arraycopy(nextPosition, from * 3, nextPosition, to * 3, 3);
+        System.arraycopy(nextVelocity, from * 3, nextVelocity, to * 3, 3);
+        nextDistanceTravelled[to] = nextDistanceTravelled[from];
+        segment[to] = segment[from];
+        pendingTime[to] = pendingTime[from];
+        scheduled[to] = scheduled[from];
+        shooters[to] = shooters[from];
+        shooterLatency[to] = shooterLatency[from];
+        updateInterval[to] = updateInterval[from];
+        sinceUpdate[to] = sinceUpdate[from];
+        updateEvent[to] = updateEvent[from];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= entities.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, entities.length * 2);
+        entities = Arrays.copyOf(entities, newCapacity);
+        ids = Arrays.copyOf(ids, newCapacity);
+        live = Arrays.copyOf(live, newCapacity);
+        position = Arrays.copyOf(position, newCapacity * 3);
+        velocity = Arrays.copyOf(velocity, newCapacity * 3);
+        direction = Arrays.copyOf(direction, newCapacity * 3);
+        initialOrientation = Arrays.copyOf(initialOrientation, newCapacity * 3);
+        distanceTravelled = Arrays.copyOf(distanceTravelled, newCapacity);
+        launchPosition = Arrays.copyOf(launchPosition, newCapacity * 3);
+        launchVelocity = Arrays.copyOf(launchVelocity, newCapacity * 3);
+        flightTime = Arrays.copyOf(flightTime, newCapacity);
+        nextFlightTime = Arrays.copyOf(nextFlightTime, newCapacity);
+        maxDistance = Arrays.copyOf(maxDistance, newCapacity);
+        affectedByGravity = Arrays.copyOf(affectedByGravity, newCapacity);
+        reusable = Arrays.copyOf(reusable, newCapacity);
+        collisionRadius = Arrays.copyOf(collisionRadius, newCapacity);
+        dragCoefficient = Arrays.copyOf(dragCoefficient, newCapacity);
+        stepLength = Arrays.copyOf(stepLength, newCapacity);
+        nextPosition = Arrays.copyOf(nextPosition, newCapacity * 3);
+        nextVelocity = Arrays.copyOf(nextVelocity, newCapacity * 3);
+        nextDistanceTravelled = Arrays.copyOf(nextDistanceTravelled, newCapacity);
+        segment = Arrays.copyOf(segment, newCapacity);
+        wind = Arrays.copyOf(wind, newCapacity * 3);
+        pendingTime = Arrays.copyOf(pendingTime, newCapacity);
+        scheduled = Arrays.copyOf(scheduled, newCapacity);
+        shooters = Arrays.copyOf(shooters, newCapacity);
+        shooterLatency = Arrays.copyOf(shooterLatency, newCapacity);
+        updateInterval = Arrays.copyOf(updateInterval, newCapacity);
+        sinceUpdate = Arrays.copyOf(sinceUpdate, newCapacity);
+        updateEvent = Arrays.copyOf(updateEvent, newCapacity);
+    }
+
+    private static void set(float[] array, int slot, Vector3fc value) {
+        int i = slot * 3;
+        array[i] = value.x();
+        array[i + 1] = value.y();
+        array[i + 2] = value.z();
+    }
+
+    private static Vector3f get(float[] array, int slot, Vector3f dest) {
+        int i = slot * 3;
+        return dest.set(array[i], array[i + 1], array[i + 2]);
+    }
+
+    private static void normalize(float[] array, int slot) {
+        int i = slot * 3;
+        float length = (float) Math.sqrt(array[i] * array[i] + array[i + 1] * array[i + 1] + array[i + 2] * array[i + 2]);
+        if (length > 0) {
+            array[i] /= length;
+            array[i + 1] /= length;
+            array[i + 2] /= length;
+        }
+    }
+
+    /**
+     * Tests the candidates of one projectile for a contact during the tick. Reused for every projectile of every pass.
+     */
+    private final class ContactFinder implements IntConsumer {
+        private int count;
+        private ProjectileContacts contacts;
+        private int slot;
+
+        @Override
+        public void accept(int other) {
+            // every pair is found from both sides, only keep it from the lower slot
+            if (other <= slot || other >= count || !isScheduled(other) || collisionRadius[other] <= 0) {
+                return;
+            }
+            int a = slot * 3;
+            int b = other * 3;
+            float px = position[b] - position[a];
+            float py = position[b + 1] - position[a + 1];
+            float pz = position[b + 2] - position[a + 2];
+            float vx = velocity[b] - velocity[a];
+            float vy = velocity[b + 1] - velocity[a + 1];
+            float vz = velocity[b + 2] - velocity[a + 2];
+            float relativeSpeedSquared = vx * vx + vy * vy + vz * vz;
+            // time of closest approach within the tick
+            float t = relativeSpeedSquared > 0 ? -(px * vx + py * vy + pz * vz) / relativeSpeedSquared : 0;
+            t = Math.max(0, Math.min(Math.min(pendingTime[slot], pendingTime[other]), t));
+            float dx = px + vx * t;
+            float dy = py + vy * t;
+            float dz = pz + vz * t;
+            float reach = collisionRadius[slot] + collisionRadius[other];
+            if (dx * dx + dy * dy + dz * dz > reach * reach) {
+                return;
+            }
+            float x = position[a] + velocity[a] * t + dx / 2;
+            float y = position[a + 1] + velocity[a + 1] * t + dy / 2;
+            float z = position[a + 2] + velocity[a + 2] * t + dz / 2;
+            if (ids[slot] < ids[other]) {
+                contacts.add(slot, other, x, y, z);
+            } else {
+                contacts.add(other, slot, x, y, z);
+            }
+        }
+    }
+}
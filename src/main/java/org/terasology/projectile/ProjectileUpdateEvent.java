@@ -18,6 +18,11 @@ package org.terasology.projectile;
 import org.terasology.gestalt.entitysystem.event.Event;
 
 /**
+ * Sent to a projectile after it stepped. Projectiles with a {@link ProjectileUpdateSubscriptionComponent} receive it at
+ * most as often as its interval allows, if at all; {@link ProjectileUpdateListener}s follow them without an event
+ * dispatch. All others only receive it, after every step, if {@link ProjectileSimulationSettings#updateEventsForAll}
+ * is enabled.
+ * <p>
  * Created by nikhil on 20/6/17.
  */
 public class ProjectileUpdateEvent implements Event {
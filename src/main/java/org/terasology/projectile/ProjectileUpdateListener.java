@@ -0,0 +1,20 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.joml.Vector3fc;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+/**
+ * Follows the flight of projectiles with a {@link ProjectileUpdateSubscriptionComponent}, called directly by
+ * {@link ProjectileAuthoritySystem} rather than through the event system.
+ */
+@FunctionalInterface
+public interface ProjectileUpdateListener {
+
+    /**
+     * Called on the game thread after a subscribed projectile stepped and its subscription interval passed. The
+     * vectors are reused and only valid during the call.
+     */
+    void onProjectileUpdate(EntityRef projectile, Vector3fc position, Vector3fc velocity);
+}
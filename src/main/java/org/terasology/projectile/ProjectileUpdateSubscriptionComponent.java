@@ -0,0 +1,30 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.terasology.gestalt.entitysystem.component.Component;
+
+/**
+ * Marks projectiles whose flight other systems follow. Only projectiles with this component notify the
+ * {@link ProjectileUpdateListener}s registered with {@link ProjectileAuthoritySystem}, and they receive their
+ * {@link ProjectileUpdateEvent} only as often and as the subscription asks. All other projectiles receive no event
+ * unless {@link ProjectileSimulationSettings#updateEventsForAll} is enabled.
+ */
+public class ProjectileUpdateSubscriptionComponent implements Component<ProjectileUpdateSubscriptionComponent> {
+
+    /**
+     * Seconds of flight between two notifications. 0 notifies after every step.
+     */
+    public float interval = 0;
+
+    /**
+     * Whether a {@link ProjectileUpdateEvent} is sent along with the listener callbacks, for systems listening to it.
+     */
+    public boolean sendEvent = true;
+
+    @Override
+    public void copyFrom(ProjectileUpdateSubscriptionComponent other) {
+        this.interval = other.interval;
+        this.sendEvent = other.sendEvent;
+    }
+}
@@ -0,0 +1,74 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.joml.Vector3fc;
+import org.terasology.projectile.util.LongIntMap;
+
+import java.util.Arrays;
+
+/**
+ * Wind that is constant within square columns of the world, falling back to a prevailing wind in columns without a
+ * wind of their own.
+ */
+public class RegionWindField implements WindField {
+    private static final int NONE = -1;
+
+    private final float regionSize;
+    private final LongIntMap regions = new LongIntMap(NONE);
+    private float[] winds = new float[3 * 16];
+    private final float[] prevailing = new float[3];
+
+    /**
+     * @param regionSize edge length of the columns in blocks
+     */
+    public RegionWindField(float regionSize) {
+        this.regionSize = regionSize;
+    }
+
+    public void setPrevailingWind(Vector3fc wind) {
+        prevailing[0] = wind.x();
+        prevailing[1] = wind.y();
+        prevailing[2] = wind.z();
+    }
+
+    /**
+     * Sets the wind of the column containing the given position.
+     */
+    public void setWind(float x, float z, Vector3fc wind) {
+        long key = key(region(x), region(z));
+        int index = regions.get(key);
+        if (index == NONE) {
+            index = regions.size();
+            if (index * 3 == winds.length) {
+                winds = Arrays.copyOf(winds, winds.length * 2);
+            }
+            regions.put(key, index);
+        }
+        winds[index * 3] = wind.x();
+        winds[index * 3 + 1] = wind.y();
+        winds[index * 3 + 2] = wind.z();
+    }
+
+    public void clear() {
+        regions.clear();
+    }
+
+    @Override
+    public void getWind(float x, float y, float z, float[] dest, int offset) {
+        int index = regions.isEmpty() ? NONE : regions.get(key(region(x), region(z)));
+        float[] source = index == NONE ? prevailing : winds;
+        int i = index == NONE ? 0 : index * 3;
+        dest[offset] = source[i];
+        dest[offset + 1] = source[i + 1];
+        dest[offset + 2] = source[i + 2];
+    }
+
+    private int region(float coordinate) {
+        return (int) Math.floor(coordinate / regionSize);
+    }
+
+    private static long key(int x, int z) {
+        return (long) x << 32 | z & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,24 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+/**
+ * Velocity of the air projectiles fly through, which drag pulls them towards. Queried concurrently by parallel
+ * ticks, so implementations must not change while a tick runs.
+ */
+@FunctionalInterface
+public interface WindField {
+    /**
+     * No wind anywhere.
+     */
+    WindField CALM = (x, y, z, dest, offset) -> {
+        dest[offset] = 0;
+        dest[offset + 1] = 0;
+        dest[offset + 2] = 0;
+    };
+
+    /**
+     * Writes the wind velocity at the given position as x, y, z into {@code dest}, starting at {@code offset}.
+     */
+    void getWind(float x, float y, float z, float[] dest, int offset);
+}
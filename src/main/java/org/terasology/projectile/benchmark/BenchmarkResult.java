@@ -0,0 +1,73 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.benchmark;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Timings of one benchmark scenario, serialisable as a single line of JSON.
+ */
+public class BenchmarkResult {
+    private final String name;
+    private final Map<String, Number> parameters;
+    private final long[] samples;
+
+    public BenchmarkResult(String name, Map<String, Number> parameters, long[] samples) {
+        this.name = name;
+        this.parameters = new LinkedHashMap<>(parameters);
+        this.samples = samples.clone();
+        Arrays.sort(this.samples);
+    }
+
+    /**
+     * Runs the body {@code warmup} times unmeasured, then {@code iterations} times measured.
+     */
+    public static BenchmarkResult measure(String name, Map<String, Number> parameters, int warmup, int iterations,
+                                          Runnable body) {
+        for (int i = 0; i < warmup; i++) {
+            body.run();
+        }
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            body.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        return new BenchmarkResult(name, parameters, samples);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getMeanMillis() {
+        long sum = 0;
+        for (long sample : samples) {
+            sum += sample;
+        }
+        return samples.length == 0 ? 0 : sum / (samples.length * 1e6);
+    }
+
+    public double getPercentileMillis(double percentile) {
+        if (samples.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(samples.length - 1, Math.floor(percentile / 100 * samples.length));
+        return samples[index] / 1e6;
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"benchmark\":\"").append(name).append('"');
+        for (Map.Entry<String, Number> parameter : parameters.entrySet()) {
+            json.append(",\"").append(parameter.getKey()).append("\":").append(parameter.getValue());
+        }
+        json.append(",\"iterations\":").append(samples.length);
+        json.append(String.format(Locale.ROOT, ",\"meanMs\":%.4f,\"p50Ms\":%.4f,\"p99Ms\":%.4f,\"maxMs\":%.4f}",
+                getMeanMillis(), getPercentileMillis(50), getPercentileMillis(99), getPercentileMillis(100)));
+        return json.toString();
+    }
+}
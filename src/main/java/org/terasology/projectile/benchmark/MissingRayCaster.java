@@ -0,0 +1,27 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.benchmark;
+
+import org.terasology.engine.physics.CollisionGroup;
+import org.terasology.engine.physics.HitResult;
+import org.terasology.projectile.collision.BatchRayCaster;
+import org.terasology.projectile.collision.RaySegmentBatch;
+
+/**
+ * Stand-in for the physics engine in which every ray misses, isolating the cost of the projectile simulation itself.
+ */
+public class MissingRayCaster implements BatchRayCaster {
+    private static final HitResult MISS = new HitResult();
+
+    @Override
+    public void cast(RaySegmentBatch batch, int from, int to, CollisionGroup... filter) {
+        for (int position = from; position < to; position++) {
+            batch.setResult(batch.indexAt(position), MISS);
+        }
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+}
@@ -0,0 +1,384 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.benchmark;
+
+import com.google.common.base.CaseFormat;
+import com.google.common.collect.ImmutableMap;
+import org.joml.Vector3f;
+import org.joml.Vector3i;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.entitySystem.entity.EntityBuilder;
+import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.logic.permission.PermissionManager;
+import org.terasology.engine.particles.ParticleData;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.utilities.random.FastRandom;
+import org.terasology.engine.utilities.random.Random;
+import org.terasology.grenade.ExplosionSampler;
+import org.terasology.projectile.FlightIntegrator;
+import org.terasology.projectile.ProjectileActionComponent;
+import org.terasology.projectile.ProjectileAuthoritySystem;
+import org.terasology.projectile.ProjectileSimulationSettings;
+import org.terasology.projectile.ProjectileStore;
+import org.terasology.projectile.RegionWindField;
+import org.terasology.projectile.WindField;
+import org.terasology.projectile.collision.BatchRayCaster;
+import org.terasology.projectile.collision.RaySegmentBatch;
+import org.terasology.projectile.particleAffectors.AttractorAffectorComponent;
+import org.terasology.projectile.particleAffectors.AttractorAffectorFunction;
+import org.terasology.projectile.particleAffectors.BulkAttractorAffector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Console commands timing the hot paths of this module on a running server. The simulation is timed on stores of its
+ * own, so the projectiles in flight in the world are neither advanced nor counted. Every result is logged as one line
+ * of JSON so that runs can be collected and compared over time.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+public class ProjectileBenchmarkCommands extends BaseComponentSystem {
+    private static final Logger logger = LoggerFactory.getLogger(ProjectileBenchmarkCommands.class);
+
+    private static final int[] PROJECTILE_COUNTS = {100, 10_000, 100_000};
+    private static final int[] PARTICLE_COUNTS = {1_000, 100_000};
+    private static final int[] ATTRACTOR_COUNTS = {2, 8};
+    private static final int[] SUBSTEPS = {1, 2, 4};
+    private static final int[] TICK_RATES = {60, 20, 5};
+    private static final int FLIGHT_MODEL_PROJECTILES = 100_000;
+    private static final int ACCURACY_PROJECTILES = 64;
+    private static final float ACCURACY_SECONDS = 3;
+    private static final int REFERENCE_SUBSTEPS = 32;
+    private static final int[] EXPLOSION_RADII = {3, 8, 16};
+    private static final int EXPLOSION_RAYS = 64;
+    private static final float TICK = 1 / 60f;
+    private static final float RAY_PADDING = .01f;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 100;
+
+    @In
+    private EntityManager entityManager;
+
+    @In
+    private ProjectileAuthoritySystem projectileAuthoritySystem;
+
+    @Command(shortDescription = "Benchmarks the projectile simulation",
+            helpText = "Times projectile ticks, flight models, explosion sampling and particle attractor updates and "
+                    + "logs the results as JSON",
+            runOnServer = true, requiredPermission = PermissionManager.DEBUG_PERMISSION)
+    public String benchmarkProjectiles() {
+        List<BenchmarkResult> results = new ArrayList<>();
+        for (int count : PROJECTILE_COUNTS) {
+            results.add(benchmarkTick(count));
+        }
+        results.addAll(benchmarkFlightModels());
+        results.addAll(benchmarkSubstepping());
+        for (int radius : EXPLOSION_RADII) {
+            results.add(benchmarkExplosion(radius));
+        }
+        for (int particles : PARTICLE_COUNTS) {
+            for (int attractors : ATTRACTOR_COUNTS) {
+                results.add(benchmarkAttractors(particles, attractors));
+                results.add(benchmarkBulkAttractors(particles, attractors));
+            }
+        }
+        return report(results);
+    }
+
+    /**
+     * Times simulation ticks over the given number of projectiles, with every ray cast missing.
+     */
+    private BenchmarkResult benchmarkTick(int count) {
+        List<EntityRef> keys = createKeys(count);
+        try {
+            ProjectileStore store = new ProjectileStore();
+            fill(store, keys);
+            RaySegmentBatch segments = new RaySegmentBatch();
+            BatchRayCaster rayCaster = new MissingRayCaster();
+            return BenchmarkResult.measure("projectileTick", ImmutableMap.of("projectiles", count), WARMUP, ITERATIONS,
+                    () -> tick(store, segments, rayCaster, TICK));
+        } finally {
+            keys.forEach(EntityRef::destroy);
+        }
+    }
+
+    /**
+     * Times simulation ticks over many projectiles for the flight model without drag and for every drag integrator and
+     * substep count, each reported with its error after a few seconds of flight.
+     */
+    private List<BenchmarkResult> benchmarkFlightModels() {
+        WindField wind = createWind();
+        List<EntityRef> keys = createKeys(FLIGHT_MODEL_PROJECTILES);
+        List<EntityRef> accuracyKeys = keys.subList(0, ACCURACY_PROJECTILES);
+        RaySegmentBatch segments = new RaySegmentBatch();
+        BatchRayCaster rayCaster = new MissingRayCaster();
+        List<BenchmarkResult> results = new ArrayList<>();
+        try {
+            double currentError = measureError(accuracyKeys, false, flightModel(false, FlightIntegrator.EULER, 1, wind),
+                    TICK, wind);
+            ProjectileStore current = flightModel(false, FlightIntegrator.EULER, 1, wind);
+            fill(current, keys);
+            results.add(BenchmarkResult.measure("flightCurrent",
+                    ImmutableMap.of("projectiles", FLIGHT_MODEL_PROJECTILES, "substeps", 1, "maxError", currentError),
+                    WARMUP, ITERATIONS, () -> tick(current, segments, rayCaster, TICK)));
+            for (FlightIntegrator candidate : FlightIntegrator.values()) {
+                for (int candidateSubsteps : SUBSTEPS) {
+                    String name = "flight" + CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, candidate.name());
+                    double error = measureError(accuracyKeys, true, flightModel(true, candidate, candidateSubsteps, wind),
+                            TICK, wind);
+                    ProjectileStore store = flightModel(true, candidate, candidateSubsteps, wind);
+                    fill(store, keys);
+                    results.add(BenchmarkResult.measure(name, ImmutableMap.of("projectiles", FLIGHT_MODEL_PROJECTILES,
+                            "substeps", candidateSubsteps, "maxError", error),
+                            WARMUP, ITERATIONS, () -> tick(store, segments, rayCaster, TICK)));
+                }
+            }
+            return results;
+        } finally {
+            keys.forEach(EntityRef::destroy);
+        }
+    }
+
+    /**
+     * Times simulation ticks over many projectiles without drag at several tick rates, with a single step per tick and
+     * with adaptive substeps, each reported with its error after a few seconds of flight. Every tick casts one ray per
+     * projectile either way. The integrator and substep limits are those of the live simulation settings.
+     */
+    private List<BenchmarkResult> benchmarkSubstepping() {
+        ProjectileSimulationSettings settings = projectileAuthoritySystem.getSettings();
+        List<EntityRef> keys = createKeys(FLIGHT_MODEL_PROJECTILES);
+        List<EntityRef> accuracyKeys = keys.subList(0, ACCURACY_PROJECTILES);
+        RaySegmentBatch segments = new RaySegmentBatch();
+        BatchRayCaster rayCaster = new MissingRayCaster();
+        List<BenchmarkResult> results = new ArrayList<>();
+        try {
+            for (boolean adaptive : new boolean[] {false, true}) {
+                for (int tickRate : TICK_RATES) {
+                    float tick = 1f / tickRate;
+                    ProjectileStore tested = flightModel(false, settings.integrator, 1, WindField.CALM);
+                    tested.setAdaptiveSubsteps(adaptive, settings.maxSubstepLength, settings.maxSubsteps);
+                    double error = measureError(accuracyKeys, false, tested, tick, WindField.CALM);
+                    ProjectileStore store = flightModel(false, settings.integrator, 1, WindField.CALM);
+                    store.setAdaptiveSubsteps(adaptive, settings.maxSubstepLength, settings.maxSubsteps);
+                    fill(store, keys);
+                    results.add(BenchmarkResult.measure(adaptive ? "substepAdaptive" : "substepFixed",
+                            ImmutableMap.of("projectiles", FLIGHT_MODEL_PROJECTILES, "tickRate", tickRate,
+                                    "maxError", error),
+                            WARMUP, ITERATIONS, () -> tick(store, segments, rayCaster, tick)));
+                }
+            }
+            return results;
+        } finally {
+            keys.forEach(EntityRef::destroy);
+        }
+    }
+
+    /**
+     * Runs the simulation phases of a {@link ProjectileAuthoritySystem} tick on the given store: scheduling,
+     * integration, collecting and casting the swept segments and committing the new state. The entity updates and
+     * events of the dispatch phase are left out, as the store is not the one of the live simulation.
+     */
+    private static void tick(ProjectileStore store, RaySegmentBatch segments, BatchRayCaster rayCaster, float delta) {
+        store.beginTick();
+        int count = store.size();
+        store.scheduleAll(delta);
+        store.prepareStep(0, count, ProjectileAuthoritySystem.G, ProjectileAuthoritySystem.TERMINAL_VELOCITY);
+        segments.clear();
+        store.collectSegments(segments, RAY_PADDING);
+        segments.sortByChunk();
+        rayCaster.cast(segments, 0, segments.size());
+        int[] order = store.dispatchOrder(count, false);
+        for (int k = 0; k < count; k++) {
+            int slot = order[k];
+            if (store.isScheduled(slot) && !store.hasExpired(slot)) {
+                store.commitStep(slot);
+            }
+        }
+        store.endTick();
+    }
+
+    /**
+     * Creates plain entities to register benchmark projectiles under in a {@link ProjectileStore}. They have no
+     * projectile components, so the live simulation does not pick them up.
+     */
+    private List<EntityRef> createKeys(int count) {
+        List<EntityRef> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            EntityBuilder builder = entityManager.newBuilder();
+            builder.setPersistent(false);
+            keys.add(builder.build());
+        }
+        return keys;
+    }
+
+    /**
+     * Registers a projectile at a random position with a random velocity under every key.
+     */
+    private static void fill(ProjectileStore store, List<EntityRef> keys) {
+        ProjectileActionComponent projectile = new ProjectileActionComponent();
+        projectile.maxDistance = -1;
+        projectile.affectedByGravity = true;
+        Random random = new FastRandom(keys.size());
+        for (EntityRef key : keys) {
+            store.add(key, random.nextVector3f(64, new Vector3f()),
+                    random.nextVector3f(projectile.initialVelocity, new Vector3f()), 0, projectile);
+        }
+    }
+
+    private static WindField createWind() {
+        RegionWindField wind = new RegionWindField(64);
+        wind.setPrevailingWind(new Vector3f(2, 0, 1));
+        return wind;
+    }
+
+    private static ProjectileStore flightModel(boolean drag, FlightIntegrator integrator, int substeps,
+                                               WindField wind) {
+        ProjectileStore store = new ProjectileStore();
+        store.setFlightModel(drag, integrator, substeps, wind);
+        return store;
+    }
+
+    /**
+     * Flies a few projectiles for some seconds in the given store at the given tick length, and at the usual tick rate
+     * along a reference: the closed-form trajectory without drag, an integration in many substeps with drag.
+     *
+     * @param keys entities to register the projectiles under
+     * @param drag whether the projectiles are slowed by drag
+     * @return the largest distance between a projectile and its reference
+     */
+    private static double measureError(List<EntityRef> keys, boolean drag, ProjectileStore tested, float tick,
+                                       WindField wind) {
+        ProjectileActionComponent projectile = new ProjectileActionComponent();
+        projectile.maxDistance = -1;
+        projectile.affectedByGravity = true;
+        float[] positions = fly(keys, projectile, tested, tick);
+        ProjectileStore reference = flightModel(drag, FlightIntegrator.MIDPOINT, REFERENCE_SUBSTEPS, wind);
+        // without drag, the closed-form trajectory is exact
+        reference.setAnalyticTrajectories(!drag);
+        float[] referencePositions = fly(keys, projectile, reference, TICK);
+        double maxError = 0;
+        for (int i = 0; i < positions.length; i += 3) {
+            float dx = positions[i] - referencePositions[i];
+            float dy = positions[i + 1] - referencePositions[i + 1];
+            float dz = positions[i + 2] - referencePositions[i + 2];
+            maxError = Math.max(maxError, Math.sqrt(dx * dx + dy * dy + dz * dz));
+        }
+        return maxError;
+    }
+
+    /**
+     * @return the positions of the projectiles after the flight, packed as x, y, z
+     */
+    private static float[] fly(List<EntityRef> keys, ProjectileActionComponent projectile, ProjectileStore store,
+                               float tick) {
+        Random random = new FastRandom(keys.size());
+        for (EntityRef key : keys) {
+            store.add(key, new Vector3f(), random.nextVector3f(projectile.initialVelocity, new Vector3f()), 0,
+                    projectile);
+        }
+        int ticks = Math.round(ACCURACY_SECONDS / tick);
+        for (int t = 0; t < ticks; t++) {
+            store.beginTick();
+            store.scheduleAll(tick);
+            store.prepareStep(0, store.size(), ProjectileAuthoritySystem.G,
+                    ProjectileAuthoritySystem.TERMINAL_VELOCITY);
+            for (int slot = 0; slot < store.size(); slot++) {
+                store.commitStep(slot);
+            }
+            store.endTick();
+        }
+        float[] positions = new float[store.size() * 3];
+        Vector3f position = new Vector3f();
+        for (int slot = 0; slot < store.size(); slot++) {
+            store.getPosition(slot, position);
+            positions[slot * 3] = position.x;
+            positions[slot * 3 + 1] = position.y;
+            positions[slot * 3 + 2] = position.z;
+        }
+        return positions;
+    }
+
+    /**
+     * Times visiting the blocks affected by an explosion whose rays reach the given radius.
+     */
+    private BenchmarkResult benchmarkExplosion(int radius) {
+        ExplosionSampler sampler = new ExplosionSampler(EXPLOSION_RAYS, radius);
+        Vector3i center = sampler.getCenter(new Vector3f(0.3f, 10.7f, -4.2f), new Vector3i());
+        Vector3i block = new Vector3i();
+        int[] checksum = new int[1];
+        return BenchmarkResult.measure("explosionSampling", ImmutableMap.of("radius", radius, "blocks", sampler.size()),
+                WARMUP, ITERATIONS, () -> {
+                    for (int i = 0; i < sampler.size(); i++) {
+                        sampler.getBlock(i, center, block);
+                        checksum[0] += block.x ^ block.y ^ block.z;
+                    }
+                });
+    }
+
+    /**
+     * Times one frame of the attractor affector over a particle pool of the given size.
+     */
+    private BenchmarkResult benchmarkAttractors(int particleCount, int attractorCount) {
+        Random random = new FastRandom(particleCount);
+        AttractorAffectorFunction function = new AttractorAffectorFunction();
+        AttractorAffectorComponent component = createAttractors(random, attractorCount);
+        ParticleData[] particles = new ParticleData[particleCount];
+        for (int i = 0; i < particleCount; i++) {
+            particles[i] = new ParticleData();
+            random.nextVector3f(2, particles[i].position);
+            particles[i].energy = 1;
+        }
+        return BenchmarkResult.measure("attractorUpdate",
+                ImmutableMap.of("particles", particleCount, "attractors", attractorCount), WARMUP, ITERATIONS, () -> {
+                    function.beforeUpdates(component, random, TICK);
+                    for (ParticleData particle : particles) {
+                        function.update(component, particle, random, TICK);
+                    }
+                });
+    }
+
+    /**
+     * Times one frame of the bulk attractor affector over arrays laid out like the particle pool of an emitter of the
+     * given size, which it works on in place.
+     */
+    private BenchmarkResult benchmarkBulkAttractors(int particleCount, int attractorCount) {
+        Random random = new FastRandom(particleCount);
+        BulkAttractorAffector affector = new BulkAttractorAffector();
+        AttractorAffectorComponent component = createAttractors(random, attractorCount);
+        float[] positions = new float[particleCount * 3];
+        float[] velocities = new float[particleCount * 3];
+        float[] energies = new float[particleCount];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = random.nextFloat(-2, 2);
+        }
+        Arrays.fill(energies, 1);
+        return BenchmarkResult.measure("attractorBulkUpdate",
+                ImmutableMap.of("particles", particleCount, "attractors", attractorCount), WARMUP, ITERATIONS,
+                () -> affector.update(component, positions, velocities, energies, particleCount, random, TICK));
+    }
+
+    private AttractorAffectorComponent createAttractors(Random random, int attractorCount) {
+        AttractorAffectorComponent component = new AttractorAffectorComponent();
+        component.origin = new LocationComponent(new Vector3f());
+        for (int i = 0; i < attractorCount; i++) {
+            component.addAttractor(random.nextVector3f(1, new Vector3f()), i % 2 == 0 ? -.1f : .3f);
+        }
+        return component;
+    }
+
+    private String report(List<BenchmarkResult> results) {
+        for (BenchmarkResult result : results) {
+            logger.info("{}", result.toJson());
+        }
+        return results.stream().map(BenchmarkResult::toJson).collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,24 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.collision;
+
+import org.terasology.engine.physics.CollisionGroup;
+
+/**
+ * Tests a batch of ray segments against the world.
+ */
+public interface BatchRayCaster {
+
+    /**
+     * Casts the segments at positions {@code [from, to)} of the chunk order of the batch and stores a hit result for
+     * every one of them. Positions are those established by {@link RaySegmentBatch#sortByChunk()}.
+     */
+    void cast(RaySegmentBatch batch, int from, int to, CollisionGroup... filter);
+
+    /**
+     * @return whether disjoint ranges of one batch may be cast from several threads at once
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+}
@@ -0,0 +1,309 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.collision;
+
+import org.joml.Vector3f;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.physics.HitResult;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ring buffer of the recent capsule colliders of characters, used to test rays against characters as they were at an
+ * earlier time.
+ * <p>
+ * Every character keeps the same column in all frames for as long as it is recorded, so rewinding interpolates
+ * between two frames without searching. Memory is bounded by the number of frames times the maximum number of
+ * characters, both fixed at construction.
+ */
+public class CharacterHistory {
+    private static final int NONE = -1;
+    // x, y, z of the capsule centre, radius and half height
+    private static final int STRIDE = 5;
+    private static final float ABSENT = Float.NaN;
+
+    private final int frames;
+    private final int maxCharacters;
+    private final long[] frameTime;
+    private final Map<EntityRef, Integer> columns = new HashMap<>();
+
+    private EntityRef[] characters = new EntityRef[0];
+    private int[] lastFrame = new int[0];
+    private float[] data = new float[0];
+    private int columnCapacity;
+    private int columnCount;
+
+    private int head = NONE;
+    private int recorded;
+    private int overflow;
+
+    public CharacterHistory(int frames, int maxCharacters) {
+        this.frames = frames;
+        this.maxCharacters = maxCharacters;
+        this.frameTime = new long[frames];
+    }
+
+    /**
+     * Starts a new frame, overwriting the oldest one once the buffer is full. Characters not recorded into the frame
+     * are absent from it.
+     */
+    public void beginFrame(long time) {
+        head = (head + 1) % frames;
+        recorded = Math.min(recorded + 1, frames);
+        frameTime[head] = time;
+        overflow = 0;
+        for (int column = 0; column < columnCount; column++) {
+            data[index(head, column)] = ABSENT;
+        }
+    }
+
+    /**
+     * Records the collider of a character into the current frame.
+     *
+     * @return false if the character could not be recorded because the history is full
+     */
+    public boolean record(EntityRef character, float x, float y, float z, float radius, float height) {
+        int column = columnOf(character);
+        if (column == NONE) {
+            overflow++;
+            return false;
+        }
+        lastFrame[column] = head;
+        int i = index(head, column);
+        data[i] = x;
+        data[i + 1] = y;
+        data[i + 2] = z;
+        data[i + 3] = radius;
+        data[i + 4] = height / 2;
+        return true;
+    }
+
+    /**
+     * Frees the columns of characters absent from every frame in the buffer.
+     */
+    public void endFrame() {
+        for (int column = 0; column < columnCount; column++) {
+            if (characters[column] != null && recorded == frames && lastFrame[column] == (head + 1) % frames) {
+                // the frame it was last seen in is the next to be overwritten
+                columns.remove(characters[column]);
+                characters[column] = null;
+            }
+        }
+    }
+
+    /**
+     * Casts a ray against the characters as they were at the given time, interpolated between the recorded frames and
+     * clamped to the oldest one.
+     *
+     * @param excluded a character the ray ignores, typically the shooter
+     * @return the hit on the nearest character within the given length, or null if there is none
+     */
+    public HitResult rayTrace(Vector3f origin, Vector3f direction, float length, long time, EntityRef excluded) {
+        if (head == NONE) {
+            return null;
+        }
+        int newer = head;
+        int older = head;
+        for (int k = 1; k < recorded && frameTime[older] > time; k++) {
+            newer = older;
+            older = (head - k + frames) % frames;
+        }
+        float blend = 0;
+        if (newer != older && frameTime[newer] > frameTime[older] && time > frameTime[older]) {
+            blend = Math.min(1, (float) (time - frameTime[older]) / (frameTime[newer] - frameTime[older]));
+        }
+
+        float nearest = length;
+        int hitColumn = NONE;
+        float hitX = 0;
+        float hitY = 0;
+        float hitZ = 0;
+        float hitHalfAxis = 0;
+        for (int column = 0; column < columnCount; column++) {
+            if (characters[column] == null || characters[column].equals(excluded)) {
+                continue;
+            }
+            int a = index(older, column);
+            int b = index(newer, column);
+            if (Float.isNaN(data[a])) {
+                a = b;
+            } else if (Float.isNaN(data[b])) {
+                b = a;
+            }
+            if (Float.isNaN(data[a])) {
+                continue;
+            }
+            float x = data[a] + (data[b] - data[a]) * blend;
+            float y = data[a + 1] + (data[b + 1] - data[a + 1]) * blend;
+            float z = data[a + 2] + (data[b + 2] - data[a + 2]) * blend;
+            float radius = data[a + 3];
+            float halfHeight = data[a + 4];
+            float t = intersectCapsule(origin, direction, x, y, z, radius, halfHeight, nearest);
+            if (t >= 0) {
+                nearest = t;
+                hitColumn = column;
+                hitX = x;
+                hitY = y;
+                hitZ = z;
+                hitHalfAxis = Math.max(0, halfHeight - radius);
+            }
+        }
+        if (hitColumn == NONE) {
+            return null;
+        }
+        Vector3f hitPoint = new Vector3f(direction).mul(nearest).add(origin);
+        float axisY = Math.max(hitY - hitHalfAxis, Math.min(hitY + hitHalfAxis, hitPoint.y));
+        Vector3f hitNormal = new Vector3f(hitPoint.x - hitX, hitPoint.y - axisY, hitPoint.z - hitZ);
+        if (hitNormal.lengthSquared() > 0) {
+            hitNormal.normalize();
+        }
+        return new HitResult(characters[hitColumn], hitPoint, hitNormal);
+    }
+
+    /**
+     * @return the number of characters currently held
+     */
+    public int getCharacterCount() {
+        return columns.size();
+    }
+
+    /**
+     * @return the number of characters that could not be recorded into the current frame because the history is full
+     */
+    public int getOverflowCount() {
+        return overflow;
+    }
+
+    /**
+     * @return whether the character is held by the history
+     */
+    public boolean contains(EntityRef character) {
+        return columns.containsKey(character);
+    }
+
+    /**
+     * @return an estimate of the bytes held by the buffer
+     */
+    public long getMemoryBytes() {
+        return (long) data.length * Float.BYTES + (long) lastFrame.length * Integer.BYTES
+                + (long) characters.length * 8 + (long) frameTime.length * Long.BYTES + (long) columns.size() * 48;
+    }
+
+    public void clear() {
+        columns.clear();
+        Arrays.fill(characters, null);
+        columnCount = 0;
+        head = NONE;
+        recorded = 0;
+        overflow = 0;
+    }
+
+    private int columnOf(EntityRef character) {
+        Integer column = columns.get(character);
+        if (column != null) {
+            return column;
+        }
+        for (int free = 0; free < columnCount; free++) {
+            if (characters[free] == null) {
+                return claim(free, character);
+            }
+        }
+        if (columnCount == maxCharacters) {
+            return NONE;
+        }
+        if (columnCount == columnCapacity) {
+            grow(Math.min(maxCharacters, Math.max(8, columnCapacity * 2)));
+        }
+        return claim(columnCount++, character);
+    }
+
+    private int claim(int column, EntityRef character) {
+        characters[column] = character;
+        columns.put(character, column);
+        for (int frame = 0; frame < frames; frame++) {
+            data[index(frame, column)] = ABSENT;
+        }
+        return column;
+    }
+
+    private void grow(int capacity) {
+        float[] grown = new float[frames * capacity * STRIDE];
+        for (int frame = 0; frame < frames; frame++) {
+            System.arraycopy(data, frame * columnCapacity * STRIDE, grown, frame * capacity * STRIDE, columnCapacity * STRIDE);
+        }
+        data = grown;
+        characters = Arrays.copyOf(characters, capacity);
+        lastFrame = Arrays.copyOf(lastFrame, capacity);
+        columnCapacity = capacity;
+    }
+
+    private int index(int frame, int column) {
+        return (frame * columnCapacity + column) * STRIDE;
+    }
+
+    /**
+     * Intersects a ray with a vertical capsule. Rays starting inside the capsule do not hit it, like physics ray
+     * traces.
+     *
+     * @return the distance along the ray to the first hit within {@code maxDistance}, or -1
+     */
+    private static float intersectCapsule(Vector3f origin, Vector3f direction, float x, float y, float z,
+                                          float radius, float halfHeight, float maxDistance) {
+        float ox = origin.x - x;
+        float oy = origin.y - y;
+        float oz = origin.z - z;
+        // cheap rejection by the bounding sphere
+        float bound = Math.max(radius, halfHeight);
+        float along = -(ox * direction.x + oy * direction.y + oz * direction.z);
+        float closest = Math.max(0, Math.min(maxDistance, along));
+        float cx = ox + direction.x * closest;
+        float cy = oy + direction.y * closest;
+        float cz = oz + direction.z * closest;
+        if (cx * cx + cy * cy + cz * cz > bound * bound) {
+            return -1;
+        }
+
+        float halfAxis = Math.max(0, halfHeight - radius);
+        float r2 = radius * radius;
+        if (halfAxis > 0) {
+            // infinite vertical cylinder, in the horizontal plane
+            float a = direction.x * direction.x + direction.z * direction.z;
+            float b = ox * direction.x + oz * direction.z;
+            float c = ox * ox + oz * oz - r2;
+            if (c <= 0 && Math.abs(oy) <= halfAxis) {
+                return -1;
+            }
+            if (a > 0) {
+                float h = b * b - a * c;
+                if (h >= 0) {
+                    float t = (-b - (float) Math.sqrt(h)) / a;
+                    float hitY = oy + direction.y * t;
+                    if (t >= 0 && Math.abs(hitY) <= halfAxis) {
+                        return t <= maxDistance ? t : -1;
+                    }
+                }
+            }
+        }
+        // the caps, or the whole capsule if it is a sphere
+        float best = -1;
+        for (int cap = -1; cap <= 1; cap += 2) {
+            float sy = oy - cap * halfAxis;
+            float b = ox * direction.x + sy * direction.y + oz * direction.z;
+            float c = ox * ox + sy * sy + oz * oz - r2;
+            if (c <= 0) {
+                return -1;
+            }
+            float h = b * b - c;
+            if (h < 0) {
+                continue;
+            }
+            float t = -b - (float) Math.sqrt(h);
+            if (t >= 0 && t <= maxDistance && (best < 0 || t < best)) {
+                best = t;
+            }
+        }
+        return best;
+    }
+}
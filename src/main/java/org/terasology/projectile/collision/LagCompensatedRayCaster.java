@@ -0,0 +1,109 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.collision;
+
+import org.joml.Vector3f;
+import org.terasology.engine.physics.CollisionGroup;
+import org.terasology.engine.physics.HitResult;
+import org.terasology.engine.physics.StandardCollisionGroup;
+
+import java.util.Arrays;
+
+/**
+ * Casts segments against characters as their shooter saw them. Everything but characters is cast by the wrapped
+ * caster; characters are rewound by the latency of the shooter in a {@link CharacterHistory} and the nearer of both
+ * hits wins.
+ * <p>
+ * Characters the full history could not record are cast where they are now: while there are any, the wrapped caster
+ * also casts the characters, and segments whose first hit is a character held by the history are cast again without
+ * them.
+ */
+public class LagCompensatedRayCaster implements BatchRayCaster {
+    private final CharacterHistory history;
+    private BatchRayCaster delegate;
+    private long now;
+    private int maxRewind;
+
+    // replaced as a whole, so that threads casting ranges of one batch never see a half updated split
+    private volatile SplitFilter split;
+
+    public LagCompensatedRayCaster(BatchRayCaster delegate, CharacterHistory history) {
+        this.delegate = delegate;
+        this.history = history;
+    }
+
+    public void setDelegate(BatchRayCaster delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Sets the current game time in milliseconds and the largest latency in milliseconds that is compensated.
+     */
+    public void setTime(long now, int maxRewind) {
+        this.now = now;
+        this.maxRewind = maxRewind;
+    }
+
+    @Override
+    public void cast(RaySegmentBatch batch, int from, int to, CollisionGroup... filter) {
+        SplitFilter split = splitFilter(filter);
+        boolean liveCharacters = split.castsCharacters && history.getOverflowCount() > 0;
+        delegate.cast(batch, from, to, liveCharacters ? filter : split.world);
+        if (!split.castsCharacters) {
+            return;
+        }
+        Vector3f origin = new Vector3f();
+        Vector3f direction = new Vector3f();
+        for (int position = from; position < to; position++) {
+            int index = batch.indexAt(position);
+            HitResult worldHit = batch.getResult(index);
+            if (liveCharacters && worldHit != null && worldHit.isHit() && history.contains(worldHit.getEntity())) {
+                // the character is rewound below, not hit where it is now
+                delegate.cast(batch, position, position + 1, split.world);
+                worldHit = batch.getResult(index);
+            }
+            float length = batch.getLength(index);
+            batch.getOrigin(index, origin);
+            if (worldHit != null && worldHit.isHit()) {
+                length = Math.min(length, worldHit.getHitPoint().distance(origin));
+            }
+            long viewTime = now - Math.min(maxRewind, batch.getLatency(index));
+            HitResult characterHit = history.rayTrace(origin, batch.getDirection(index, direction), length, viewTime,
+                    batch.getShooter(index));
+            if (characterHit != null) {
+                batch.setResult(index, characterHit);
+            }
+        }
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return delegate.isThreadSafe();
+    }
+
+    private SplitFilter splitFilter(CollisionGroup[] filter) {
+        SplitFilter current = split;
+        if (current == null || current.filter != filter) {
+            current = new SplitFilter(filter);
+            split = current;
+        }
+        return current;
+    }
+
+    /**
+     * A filter divided into the groups cast by the wrapped caster and whether characters are rewound
+     */
+    private static final class SplitFilter {
+        private final CollisionGroup[] filter;
+        private final CollisionGroup[] world;
+        private final boolean castsCharacters;
+
+        private SplitFilter(CollisionGroup[] filter) {
+            this.filter = filter;
+            this.castsCharacters = Arrays.asList(filter).contains(StandardCollisionGroup.CHARACTER);
+            this.world = Arrays.stream(filter)
+                    .filter(group -> group != StandardCollisionGroup.CHARACTER)
+                    .toArray(CollisionGroup[]::new);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.collision;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+/**
+ * Estimates how far behind the server the world a shooter sees is, which is how far lag compensated ray casts rewind
+ * characters for projectiles fired by them.
+ */
+@FunctionalInterface
+public interface LatencyEstimator {
+
+    /**
+     * @param shooter the character or other entity which fired a projectile
+     * @return the latency in milliseconds, 0 if unknown
+     */
+    int getLatency(EntityRef shooter);
+}
@@ -0,0 +1,46 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.collision;
+
+import org.terasology.engine.physics.CollisionGroup;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the chunk order of a {@link RaySegmentBatch} into ranges cast on a fork-join pool.
+ */
+public class ParallelRayCast extends RecursiveAction {
+    /**
+     * Number of segments below which a range is cast on the current thread.
+     */
+    public static final int THRESHOLD = 256;
+
+    private final BatchRayCaster rayCaster;
+    private final RaySegmentBatch batch;
+    private final CollisionGroup[] filter;
+    private final int from;
+    private final int to;
+
+    public ParallelRayCast(BatchRayCaster rayCaster, RaySegmentBatch batch, CollisionGroup[] filter) {
+        this(rayCaster, batch, filter, 0, batch.size());
+    }
+
+    private ParallelRayCast(BatchRayCaster rayCaster, RaySegmentBatch batch, CollisionGroup[] filter, int from, int to) {
+        this.rayCaster = rayCaster;
+        this.batch = batch;
+        this.filter = filter;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= THRESHOLD) {
+            rayCaster.cast(batch, from, to, filter);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new ParallelRayCast(rayCaster, batch, filter, from, middle),
+                new ParallelRayCast(rayCaster, batch, filter, middle, to));
+    }
+}
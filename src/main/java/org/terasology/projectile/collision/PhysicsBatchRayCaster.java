@@ -0,0 +1,51 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.collision;
+
+import org.joml.Vector3f;
+import org.terasology.engine.physics.CollisionGroup;
+import org.terasology.engine.physics.Physics;
+
+/**
+ * Default {@link BatchRayCaster}, a per-ray adapter over {@link Physics#rayTrace}. Every segment is traced on its own
+ * and nothing, neither block nor chunk lookups, is shared between segments: the physics engine offers no batched
+ * query to build on. Visiting the segments in chunk order only makes consecutive traces touch the same region of the
+ * world.
+ * <p>
+ * The ray traces of the engine are not known to tolerate concurrent callers, so the caster reports itself as not
+ * thread safe unless told otherwise, and {@link org.terasology.projectile.ProjectileSimulationSettings#parallelRayCasts}
+ * has no effect with it.
+ */
+public class PhysicsBatchRayCaster implements BatchRayCaster {
+    private final Physics physics;
+    private final boolean threadSafe;
+
+    public PhysicsBatchRayCaster(Physics physics) {
+        this(physics, false);
+    }
+
+    /**
+     * @param threadSafe whether the physics engine in use tolerates concurrent ray traces
+     */
+    public PhysicsBatchRayCaster(Physics physics, boolean threadSafe) {
+        this.physics = physics;
+        this.threadSafe = threadSafe;
+    }
+
+    @Override
+    public void cast(RaySegmentBatch batch, int from, int to, CollisionGroup... filter) {
+        Vector3f origin = new Vector3f();
+        Vector3f direction = new Vector3f();
+        for (int position = from; position < to; position++) {
+            int index = batch.indexAt(position);
+            batch.getOrigin(index, origin);
+            batch.getDirection(index, direction);
+            batch.setResult(index, physics.rayTrace(origin, direction, batch.getLength(index), filter));
+        }
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return threadSafe;
+    }
+}
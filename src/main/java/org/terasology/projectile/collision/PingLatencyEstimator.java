@@ -0,0 +1,38 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.collision;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.logic.characters.CharacterComponent;
+import org.terasology.engine.network.PingStockComponent;
+
+import java.util.Map;
+
+/**
+ * Estimates the latency of a character by the round trip time the engine measures to the client controlling it. A shot
+ * reaches the server half a round trip after it was fired at a world that was already half a round trip old, so the
+ * whole round trip is how far the shooter saw the world behind the server.
+ * <p>
+ * The engine only publishes the pings of clients that carry a {@link PingStockComponent}, so it is added to the client
+ * of a shooter the first time it is asked for. Until the engine has measured the client, and for entities no client
+ * controls, the latency is 0.
+ */
+public class PingLatencyEstimator implements LatencyEstimator {
+
+    @Override
+    public int getLatency(EntityRef shooter) {
+        CharacterComponent character = shooter.getComponent(CharacterComponent.class);
+        if (character == null || character.controller == null || !character.controller.exists()) {
+            return 0;
+        }
+        EntityRef client = character.controller;
+        PingStockComponent pingStock = client.getComponent(PingStockComponent.class);
+        if (pingStock == null) {
+            client.addComponent(new PingStockComponent());
+            return 0;
+        }
+        Map<EntityRef, Long> pings = pingStock.getValues();
+        Long ping = pings != null ? pings.get(client) : null;
+        return ping != null ? (int) Math.min(Math.max(ping, 0), Integer.MAX_VALUE) : 0;
+    }
+}
@@ -0,0 +1,157 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.collision;
+
+import org.joml.Vector3f;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.physics.HitResult;
+
+import java.util.Arrays;
+
+/**
+ * The ray segments swept by all projectiles during one tick, together with their hit results.
+ * <p>
+ * Segments are stored in structure-of-arrays form. {@link #sortByChunk()} establishes an iteration order that groups
+ * segments starting in the same chunk, so that consecutive queries touch the same region of the world. The order is
+ * all it establishes; whether anything is shared between the segments of a chunk is up to the {@link BatchRayCaster}.
+ */
+public class RaySegmentBatch {
+    /**
+     * Edge length of the cells segments are grouped by, matching the horizontal chunk size.
+     */
+    public static final int CELL_SIZE = 32;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int INDEX_BITS = 24;
+    private static final int CELL_BITS = 13;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+    private int size;
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private float[] origin = new float[INITIAL_CAPACITY * 3];
+    private float[] direction = new float[INITIAL_CAPACITY * 3];
+    private float[] length = new float[INITIAL_CAPACITY];
+    private HitResult[] results = new HitResult[INITIAL_CAPACITY];
+    private EntityRef[] shooters = new EntityRef[INITIAL_CAPACITY];
+    private int[] latencies = new int[INITIAL_CAPACITY];
+    private long[] order = new long[INITIAL_CAPACITY];
+
+    public void clear() {
+        Arrays.fill(results, 0, size, null);
+        Arrays.fill(shooters, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Appends a segment and returns its index in the batch.
+     */
+    public int add(int slot, float originX, float originY, float originZ,
+                   float directionX, float directionY, float directionZ, float segmentLength) {
+        ensureCapacity(size + 1);
+        int index = size++;
+        int i = index * 3;
+        slots[index] = slot;
+        origin[i] = originX;
+        origin[i + 1] = originY;
+        origin[i + 2] = originZ;
+        direction[i] = directionX;
+        direction[i + 1] = directionY;
+        direction[i + 2] = directionZ;
+        length[index] = segmentLength;
+        results[index] = null;
+        shooters[index] = null;
+        latencies[index] = 0;
+        return index;
+    }
+
+    /**
+     * Orders the segments by the cell containing their origin. Positions within the order are used by
+     * {@link BatchRayCaster#cast}.
+     */
+    public void sortByChunk() {
+        for (int index = 0; index < size; index++) {
+            int i = index * 3;
+            long cellX = Math.floorDiv((int) Math.floor(origin[i]), CELL_SIZE) & CELL_MASK;
+            long cellY = Math.floorDiv((int) Math.floor(origin[i + 1]), CELL_SIZE) & CELL_MASK;
+            long cellZ = Math.floorDiv((int) Math.floor(origin[i + 2]), CELL_SIZE) & CELL_MASK;
+            long cell = (cellX << (2 * CELL_BITS)) | (cellY << CELL_BITS) | cellZ;
+            order[index] = (cell << INDEX_BITS) | index;
+        }
+        Arrays.sort(order, 0, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the index of the segment at the given position of the chunk order
+     */
+    public int indexAt(int position) {
+        return (int) (order[position] & ((1L << INDEX_BITS) - 1));
+    }
+
+    /**
+     * Records who fired the projectile sweeping the segment and how many milliseconds the world they saw lagged behind
+     * the server, for lag compensated ray casts.
+     */
+    public void setShooter(int index, EntityRef shooter, int latency) {
+        shooters[index] = shooter;
+        latencies[index] = latency;
+    }
+
+    /**
+     * @return the shooter of the segment, or null if unknown
+     */
+    public EntityRef getShooter(int index) {
+        return shooters[index];
+    }
+
+    public int getLatency(int index) {
+        return latencies[index];
+    }
+
+    public int getSlot(int index) {
+        return slots[index];
+    }
+
+    public Vector3f getOrigin(int index, Vector3f dest) {
+        int i = index * 3;
+        return dest.set(origin[i], origin[i + 1], origin[i + 2]);
+    }
+
+    public Vector3f getDirection(int index, Vector3f dest) {
+        int i = index * 3;
+        return dest.set(direction[i], direction[i + 1], direction[i + 2]);
+    }
+
+    public float getLength(int index) {
+        return length[index];
+    }
+
+    public HitResult getResult(int index) {
+        return results[index];
+    }
+
+    public void setResult(int index, HitResult result) {
+        results[index] = result;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= slots.length) {
+            return;
+        }
+        if (capacity > 1 << INDEX_BITS) {
+            throw new IllegalStateException("Too many ray segments in one batch: " + capacity);
+        }
+        int newCapacity = Math.min(Math.max(capacity, slots.length * 2), 1 << INDEX_BITS);
+        slots = Arrays.copyOf(slots, newCapacity);
+        origin = Arrays.copyOf(origin, newCapacity * 3);
+        direction = Arrays.copyOf(direction, newCapacity * 3);
+        length = Arrays.copyOf(length, newCapacity);
+        results = Arrays.copyOf(results, newCapacity);
+        shooters = Arrays.copyOf(shooters, newCapacity);
+        latencies = Arrays.copyOf(latencies, newCapacity);
+        order = Arrays.copyOf(order, newCapacity);
+    }
+}
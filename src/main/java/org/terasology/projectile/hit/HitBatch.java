@@ -0,0 +1,128 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.hit;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.module.health.events.DoDamageEvent;
+import org.terasology.projectile.util.ObjectIntMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The damage and deactivations the hits of one tick cause, applied together by {@link #flush(Consumer)}.
+ * <p>
+ * Damage of the same type to the same target is merged into a single {@link DoDamageEvent}. Projectiles queued for
+ * deactivation or destruction are stopped: they do not move on in the tick, even though their entities only change
+ * on flush.
+ * <p>
+ * Entries are kept in primitive maps and the lists keep their capacity when cleared, so a batch that has seen a tick
+ * of a given size queues the hits of the next ones without allocating; only the damage events sent on flush are new.
+ */
+public class HitBatch {
+    private final List<EntityRef> targets = new ArrayList<>();
+    private final List<Prefab> damageTypes = new ArrayList<>();
+    private int[] amounts = new int[16];
+    // the latest entry of every target, which further damage of the same type is merged into
+    private final ObjectIntMap<EntityRef> latestEntry = new ObjectIntMap<>(-1);
+    private final ObjectIntMap<EntityRef> pendingDamage = new ObjectIntMap<>(0);
+
+    private final List<EntityRef> deactivated = new ArrayList<>();
+    private final List<EntityRef> destroyed = new ArrayList<>();
+    private final ObjectIntMap<EntityRef> stopped = new ObjectIntMap<>(0);
+
+    public void damage(EntityRef target, int amount, Prefab damageType) {
+        pendingDamage.put(target, pendingDamage.get(target) + amount);
+        int entry = latestEntry.get(target);
+        if (entry != -1 && damageTypes.get(entry) == damageType) {
+            amounts[entry] += amount;
+            return;
+        }
+        int index = targets.size();
+        if (index == amounts.length) {
+            amounts = Arrays.copyOf(amounts, index * 2);
+        }
+        targets.add(target);
+        damageTypes.add(damageType);
+        amounts[index] = amount;
+        latestEntry.put(target, index);
+    }
+
+    /**
+     * The damage queued for the target so far in this tick
+     */
+    public int getPendingDamage(EntityRef target) {
+        return pendingDamage.get(target);
+    }
+
+    /**
+     * Stops the projectile and drops it as an item.
+     */
+    public void deactivate(EntityRef projectile) {
+        if (stop(projectile)) {
+            deactivated.add(projectile);
+        }
+    }
+
+    /**
+     * Stops the projectile and destroys its entity.
+     */
+    public void destroy(EntityRef projectile) {
+        if (stop(projectile)) {
+            destroyed.add(projectile);
+        }
+    }
+
+    public boolean isStopped(EntityRef projectile) {
+        return stopped.containsKey(projectile);
+    }
+
+    public boolean isEmpty() {
+        return targets.isEmpty() && stopped.isEmpty();
+    }
+
+    /**
+     * Sends the merged damage, then deactivates and destroys the stopped projectiles, and empties the batch.
+     *
+     * @param deactivation drops a projectile as an item
+     */
+    public void flush(Consumer<EntityRef> deactivation) {
+        for (int i = 0; i < targets.size(); i++) {
+            EntityRef target = targets.get(i);
+            if (target.exists()) {
+                target.send(new DoDamageEvent(amounts[i], damageTypes.get(i)));
+            }
+        }
+        for (EntityRef projectile : deactivated) {
+            if (projectile.exists()) {
+                deactivation.accept(projectile);
+            }
+        }
+        for (EntityRef projectile : destroyed) {
+            if (projectile.exists()) {
+                projectile.destroy();
+            }
+        }
+        clear();
+    }
+
+    public void clear() {
+        targets.clear();
+        damageTypes.clear();
+        latestEntry.clear();
+        pendingDamage.clear();
+        deactivated.clear();
+        destroyed.clear();
+        stopped.clear();
+    }
+
+    /**
+     * @return whether the projectile was not stopped yet
+     */
+    private boolean stop(EntityRef projectile) {
+        return stopped.put(projectile, 1) == 0;
+    }
+}
@@ -0,0 +1,16 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.hit;
+
+/**
+ * Decides what a hit of one type of projectile does, see {@link HitResolverRegistry}.
+ */
+@FunctionalInterface
+public interface HitResolver {
+
+    /**
+     * Resolves the hit. Damage and deactivation are queued on the batch rather than applied right away; they take
+     * effect at the end of the tick.
+     */
+    void resolve(ProjectileHit hit, HitBatch batch);
+}
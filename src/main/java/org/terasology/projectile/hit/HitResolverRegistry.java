@@ -0,0 +1,62 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.hit;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.gestalt.entitysystem.component.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link HitResolver} of every type of projectile, keyed by a component marking the type. A projectile is
+ * resolved by the resolver of the first registered type it has, or by the default resolver if it has none.
+ */
+public class HitResolverRegistry {
+    private static final HitResolver NONE = (hit, batch) -> { };
+
+    private final List<Class<? extends Component>> types = new ArrayList<>();
+    private final List<HitResolver> resolvers = new ArrayList<>();
+    private HitResolver defaultResolver = NONE;
+
+    /**
+     * Resolves hits of projectiles with the given component, replacing an earlier resolver of the type.
+     */
+    public void register(Class<? extends Component> type, HitResolver resolver) {
+        int index = types.indexOf(type);
+        if (index != -1) {
+            resolvers.set(index, resolver);
+        } else {
+            types.add(type);
+            resolvers.add(resolver);
+        }
+    }
+
+    public void unregister(Class<? extends Component> type) {
+        int index = types.indexOf(type);
+        if (index != -1) {
+            types.remove(index);
+            resolvers.remove(index);
+        }
+    }
+
+    /**
+     * Resolves hits of projectiles of no registered type. Null resolves them without any effect.
+     */
+    public void setDefault(HitResolver resolver) {
+        defaultResolver = resolver != null ? resolver : NONE;
+    }
+
+    public HitResolver getResolver(EntityRef projectile) {
+        for (int i = 0; i < types.size(); i++) {
+            if (projectile.hasComponent(types.get(i))) {
+                return resolvers.get(i);
+            }
+        }
+        return defaultResolver;
+    }
+
+    public void resolve(ProjectileHit hit, HitBatch batch) {
+        getResolver(hit.getProjectile()).resolve(hit, batch);
+    }
+}
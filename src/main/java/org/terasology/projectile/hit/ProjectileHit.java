@@ -0,0 +1,106 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.hit;
+
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.module.health.components.HealthComponent;
+import org.terasology.projectile.ProjectileActionComponent;
+
+/**
+ * One impact of a projectile on a target, resolved once by the {@link HitResolver} of the projectile type.
+ * <p>
+ * Resolvers only read the record. The components it refers to are those of the live entities, read once when the
+ * hit was detected, so resolvers do not need to look them up again. The authority system reuses a single record for
+ * every hit, so it is only valid during {@link HitResolver#resolve}; resolvers copy what they keep.
+ */
+public final class ProjectileHit {
+    private EntityRef projectile = EntityRef.NULL;
+    private ProjectileActionComponent action;
+    private EntityRef target = EntityRef.NULL;
+    private HealthComponent targetHealth;
+    private EntityRef shooter = EntityRef.NULL;
+    private final Vector3f direction = new Vector3f();
+    private final Vector3f hitPoint = new Vector3f();
+    private final Vector3f hitNormal = new Vector3f();
+
+    public ProjectileHit() {
+    }
+
+    /**
+     * @param shooter who fired the projectile, or {@link EntityRef#NULL} if unknown
+     */
+    public ProjectileHit(EntityRef projectile, ProjectileActionComponent action, EntityRef target,
+                         HealthComponent targetHealth, EntityRef shooter, Vector3fc direction, Vector3fc hitPoint,
+                         Vector3fc hitNormal) {
+        set(projectile, action, target, targetHealth, shooter, direction, hitPoint, hitNormal);
+    }
+
+    /**
+     * Fills the record with the next hit, copying the vectors.
+     *
+     * @param shooter who fired the projectile, or {@link EntityRef#NULL} if unknown
+     * @return this record
+     */
+    public ProjectileHit set(EntityRef projectile, ProjectileActionComponent action, EntityRef target,
+                             HealthComponent targetHealth, EntityRef shooter, Vector3fc direction, Vector3fc hitPoint,
+                             Vector3fc hitNormal) {
+        this.projectile = projectile;
+        this.action = action;
+        this.target = target;
+        this.targetHealth = targetHealth;
+        this.shooter = shooter;
+        this.direction.set(direction);
+        this.hitPoint.set(hitPoint);
+        this.hitNormal.set(hitNormal);
+        return this;
+    }
+
+    public EntityRef getProjectile() {
+        return projectile;
+    }
+
+    public ProjectileActionComponent getAction() {
+        return action;
+    }
+
+    public EntityRef getTarget() {
+        return target;
+    }
+
+    /**
+     * The health of the target at the time of the hit, never null as only targets that can be damaged are hit
+     */
+    public HealthComponent getTargetHealth() {
+        return targetHealth;
+    }
+
+    public EntityRef getShooter() {
+        return shooter;
+    }
+
+    public Vector3fc getDirection() {
+        return direction;
+    }
+
+    public Vector3fc getHitPoint() {
+        return hitPoint;
+    }
+
+    public Vector3fc getHitNormal() {
+        return hitNormal;
+    }
+
+    /**
+     * The location of the target, or the hit point if it has none
+     */
+    public Vector3f getTargetLocation(Vector3f dest) {
+        LocationComponent location = target.getComponent(LocationComponent.class);
+        if (location != null) {
+            return location.getWorldPosition(dest);
+        }
+        return dest.set(hitPoint);
+    }
+}
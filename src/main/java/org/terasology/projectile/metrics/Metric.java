@@ -0,0 +1,124 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.metrics;
+
+/**
+ * A single named value of the {@link ProjectileMetrics} registry. Updates are dropped while the registry is disabled,
+ * so call sites can update unconditionally.
+ * <p>
+ * Besides its total, a metric keeps a window covering the time since the last dump of the registry. Counters sum
+ * their increments, gauges keep the last value set and samples, such as timings, keep the sum, count and maximum of
+ * the values recorded.
+ */
+public final class Metric {
+    public enum Kind {
+        COUNTER,
+        GAUGE,
+        SAMPLE
+    }
+
+    private final String name;
+    private final Kind kind;
+    private final ProjectileMetrics registry;
+
+    private long total;
+    private long window;
+    private long windowSamples;
+    private long windowMax;
+
+    Metric(String name, Kind kind, ProjectileMetrics registry) {
+        this.name = name;
+        this.kind = kind;
+        this.registry = registry;
+    }
+
+    /**
+     * Increments a counter.
+     */
+    public void add(long amount) {
+        if (registry.isEnabled()) {
+            total += amount;
+            window += amount;
+        }
+    }
+
+    /**
+     * Sets the current value of a gauge.
+     */
+    public void set(long value) {
+        if (registry.isEnabled()) {
+            total = value;
+            window = value;
+        }
+    }
+
+    /**
+     * Records one value of a sample.
+     */
+    public void record(long value) {
+        if (registry.isEnabled()) {
+            total += value;
+            window += value;
+            windowSamples++;
+            windowMax = Math.max(windowMax, value);
+        }
+    }
+
+    /**
+     * Records the nanoseconds elapsed since a start time taken with {@link ProjectileMetrics#startTimer()}.
+     */
+    public void stopTimer(long start) {
+        if (registry.isEnabled() && start != 0) {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * The sum of all increments or recorded values, or the current value of a gauge.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public long getWindowValue() {
+        return window;
+    }
+
+    public long getWindowSamples() {
+        return windowSamples;
+    }
+
+    public long getWindowMax() {
+        return windowMax;
+    }
+
+    /**
+     * The mean value recorded in the current window, 0 if none was.
+     */
+    public double getWindowMean() {
+        return windowSamples > 0 ? (double) window / windowSamples : 0;
+    }
+
+    void resetWindow() {
+        if (kind != Kind.GAUGE) {
+            window = 0;
+        }
+        windowSamples = 0;
+        windowMax = 0;
+    }
+
+    void reset() {
+        total = 0;
+        window = 0;
+        windowSamples = 0;
+        windowMax = 0;
+    }
+}
@@ -0,0 +1,205 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.logic.permission.PermissionManager;
+import org.terasology.engine.registry.Share;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Registry of the runtime metrics of the projectile subsystem. Metrics are disabled by default; while disabled every
+ * update of a {@link Metric} is a single branch and timers do not read the clock.
+ * <p>
+ * Every process keeps its own registry: simulation metrics are collected on the server, prediction metrics on remote
+ * clients, and the console commands report the metrics of the process they run in.
+ * <p>
+ * While enabled, the registry logs all metrics as one line of JSON every {@link #dumpInterval} seconds and then starts
+ * a new window.
+ */
+@RegisterSystem(RegisterMode.ALWAYS)
+@Share(ProjectileMetrics.class)
+public class ProjectileMetrics extends BaseComponentSystem implements UpdateSubscriberSystem {
+    public static final String LIVE_PROJECTILES = "projectiles.live";
+    public static final String SPAWNED_PROJECTILES = "projectiles.spawned";
+    public static final String DESPAWNED_PROJECTILES = "projectiles.despawned";
+    public static final String INTEGRATION_TIME = "tick.integrationNanos";
+    public static final String RAY_CAST_TIME = "tick.rayCastNanos";
+    public static final String DISPATCH_TIME = "tick.dispatchNanos";
+    public static final String RAY_CASTS = "tick.rayCasts";
+    public static final String PROJECTILE_HITS = "hits.projectile";
+    public static final String FIREBALL_HITS = "hits.fireball";
+    public static final String GRENADE_HITS = "hits.grenade";
+    public static final String EXPLOSION_BLOCKS = "explosion.blocks";
+    public static final String EXPLOSION_QUEUE_DEPTH = "explosion.queueDepth";
+    public static final String CHAINED_EXPLOSIONS = "explosion.chained";
+    public static final String DEFERRED_EXPLOSIONS = "explosion.deferred";
+    public static final String EXPLOSION_QUEUE_TIME = "explosion.queueNanos";
+    public static final String PREDICTED_PROJECTILES = "predictions.made";
+    public static final String MISMATCHED_PREDICTIONS = "predictions.mismatched";
+    public static final String UNCONFIRMED_PREDICTIONS = "predictions.unconfirmed";
+    public static final String HISTORY_RECORD_TIME = "lagCompensation.recordNanos";
+    public static final String HISTORY_CHARACTERS = "lagCompensation.characters";
+    public static final String HISTORY_OVERFLOW = "lagCompensation.overflow";
+    public static final String HISTORY_MEMORY = "lagCompensation.memoryBytes";
+    public static final String REJECTED_SHOTS = "shots.rejected";
+    public static final String FIREBALL_PARTICLES = "fireballLod.particles";
+    public static final String FIREBALL_IMPOSTORS = "fireballLod.impostors";
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectileMetrics.class);
+
+    /**
+     * Seconds between two dumps of the metrics to the log. 0 disables the dump.
+     */
+    public float dumpInterval = 10;
+
+    private final Map<String, Metric> metrics = new LinkedHashMap<>();
+    private boolean enabled;
+    private float windowTime;
+    private long windowTicks;
+
+    public ProjectileMetrics() {
+        gauge(LIVE_PROJECTILES);
+        counter(SPAWNED_PROJECTILES);
+        counter(DESPAWNED_PROJECTILES);
+        sample(INTEGRATION_TIME);
+        sample(RAY_CAST_TIME);
+        sample(DISPATCH_TIME);
+        sample(RAY_CASTS);
+        counter(PROJECTILE_HITS);
+        counter(FIREBALL_HITS);
+        counter(GRENADE_HITS);
+        sample(EXPLOSION_BLOCKS);
+        gauge(EXPLOSION_QUEUE_DEPTH);
+        counter(CHAINED_EXPLOSIONS);
+        counter(DEFERRED_EXPLOSIONS);
+        sample(EXPLOSION_QUEUE_TIME);
+        counter(PREDICTED_PROJECTILES);
+        counter(MISMATCHED_PREDICTIONS);
+        counter(UNCONFIRMED_PREDICTIONS);
+        sample(HISTORY_RECORD_TIME);
+        gauge(HISTORY_CHARACTERS);
+        gauge(HISTORY_OVERFLOW);
+        gauge(HISTORY_MEMORY);
+        counter(REJECTED_SHOTS);
+        gauge(FIREBALL_PARTICLES);
+        gauge(FIREBALL_IMPOSTORS);
+    }
+
+    @Override
+    public void update(float delta) {
+        if (!enabled) {
+            return;
+        }
+        windowTime += delta;
+        windowTicks++;
+        if (dumpInterval > 0 && windowTime >= dumpInterval) {
+            logger.info(toJson());
+            resetWindow();
+        }
+    }
+
+    @Command(shortDescription = "Toggles projectile metrics",
+            helpText = "Enables or disables the collection of projectile metrics and their periodic dump to the log",
+            requiredPermission = PermissionManager.DEBUG_PERMISSION)
+    public String toggleProjectileMetrics() {
+        setEnabled(!enabled);
+        return "Projectile metrics " + (enabled ? "enabled" : "disabled");
+    }
+
+    @Command(shortDescription = "Shows projectile metrics",
+            helpText = "Prints the projectile metrics of the current window as JSON",
+            requiredPermission = PermissionManager.DEBUG_PERMISSION)
+    public String showProjectileMetrics() {
+        return toJson();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables collection. Enabling starts from zero.
+     */
+    public void setEnabled(boolean enabled) {
+        if (enabled && !this.enabled) {
+            metrics.values().forEach(Metric::reset);
+            windowTime = 0;
+            windowTicks = 0;
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * The current time in nanoseconds if metrics are enabled, 0 otherwise; see {@link Metric#stopTimer(long)}.
+     */
+    public long startTimer() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public Metric counter(String name) {
+        return metrics.computeIfAbsent(name, key -> new Metric(key, Metric.Kind.COUNTER, this));
+    }
+
+    public Metric gauge(String name) {
+        return metrics.computeIfAbsent(name, key -> new Metric(key, Metric.Kind.GAUGE, this));
+    }
+
+    public Metric sample(String name) {
+        return metrics.computeIfAbsent(name, key -> new Metric(key, Metric.Kind.SAMPLE, this));
+    }
+
+    /**
+     * @return the metric of the given name, or null if there is none
+     */
+    public Metric get(String name) {
+        return metrics.get(name);
+    }
+
+    public Collection<Metric> getMetrics() {
+        return Collections.unmodifiableCollection(metrics.values());
+    }
+
+    /**
+     * Renders the current window as JSON. Counters report their total, their rate per second and their mean per
+     * tick, samples their mean and maximum per recorded value and gauges their current value.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT, "{\"windowSeconds\":%.2f,\"ticks\":%d", windowTime, windowTicks));
+        for (Metric metric : metrics.values()) {
+            json.append(",\"").append(metric.getName()).append("\":");
+            switch (metric.getKind()) {
+                case COUNTER:
+                    json.append(String.format(Locale.ROOT, "{\"total\":%d,\"perSecond\":%.2f,\"perTick\":%.3f}",
+                            metric.getTotal(), windowTime > 0 ? metric.getWindowValue() / windowTime : 0,
+                            windowTicks > 0 ? (double) metric.getWindowValue() / windowTicks : 0));
+                    break;
+                case SAMPLE:
+                    json.append(String.format(Locale.ROOT, "{\"samples\":%d,\"mean\":%.1f,\"max\":%d}",
+                            metric.getWindowSamples(), metric.getWindowMean(), metric.getWindowMax()));
+                    break;
+                default:
+                    json.append(metric.getWindowValue());
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    private void resetWindow() {
+        metrics.values().forEach(Metric::resetWindow);
+        windowTime = 0;
+        windowTicks = 0;
+    }
+}
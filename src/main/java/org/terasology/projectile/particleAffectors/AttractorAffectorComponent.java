@@ -3,31 +3,90 @@
 package org.terasology.projectile.particleAffectors;
 
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
 import org.terasology.engine.logic.location.LocationComponent;
 import org.terasology.engine.network.Replicate;
+import org.terasology.engine.particles.components.ParticleEmitterComponent;
 import org.terasology.gestalt.entitysystem.component.Component;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
+/**
+ * Attractors pulling (positive strength) or pushing (negative strength) the particles of an emitter. Attractors are
+ * kept in packed arrays: the offsets from the origin as x, y, z triples and the strengths in the same order.
+ */
 public class AttractorAffectorComponent implements Component<AttractorAffectorComponent> {
+    private static final float[] EMPTY = new float[0];
 
     @Replicate
-    public Map<Vector3f, Float> attractors;
+    public float[] offsets = EMPTY;
+
+    @Replicate
+    public float[] strengths = EMPTY;
 
     @Replicate
     public LocationComponent origin;
 
-    public AttractorAffectorComponent() {
-        this.attractors = new HashMap<>();
+    /**
+     * The emitter whose particles the attractors affect. While it has a particle pool, all its particles are affected
+     * at once by a {@link BulkAttractorAffector}; otherwise one at a time.
+     */
+    public transient ParticleEmitterComponent emitter;
+
+    /**
+     * World positions of the attractors as x, y, z triples, resolved once per frame by
+     * {@link AttractorAffectorFunction#beforeUpdates}
+     */
+    transient float[] worldPositions = EMPTY;
+
+    /**
+     * Whether {@link AttractorAffectorFunction#beforeUpdates} already affected all particles in this frame
+     */
+    transient boolean bulkUpdated;
+
+    public void addAttractor(Vector3fc offset, float strength) {
+        int count = getAttractorCount();
+        offsets = Arrays.copyOf(offsets, (count + 1) * 3);
+        strengths = Arrays.copyOf(strengths, count + 1);
+        offsets[count * 3] = offset.x();
+        offsets[count * 3 + 1] = offset.y();
+        offsets[count * 3 + 2] = offset.z();
+        strengths[count] = strength;
+    }
+
+    public void clearAttractors() {
+        offsets = EMPTY;
+        strengths = EMPTY;
+    }
+
+    public int getAttractorCount() {
+        return strengths.length;
+    }
+
+    /**
+     * Adds the offsets to the world position of the origin. Returns false if there is no origin.
+     */
+    boolean resolveAttractors(Vector3f scratch) {
+        if (origin == null) {
+            return false;
+        }
+        int length = getAttractorCount() * 3;
+        if (worldPositions.length != length) {
+            worldPositions = new float[length];
+        }
+        origin.getWorldPosition(scratch);
+        for (int i = 0; i < length; i += 3) {
+            worldPositions[i] = offsets[i] + scratch.x;
+            worldPositions[i + 1] = offsets[i + 1] + scratch.y;
+            worldPositions[i + 2] = offsets[i + 2] + scratch.z;
+        }
+        return true;
     }
 
     @Override
     public void copyFrom(AttractorAffectorComponent other) {
-        this.attractors.clear();
-        for (Map.Entry<Vector3f, Float> entry : other.attractors.entrySet()) {
-            this.attractors.put(new Vector3f(entry.getKey()), entry.getValue());
-        }
+        this.offsets = Arrays.copyOf(other.offsets, other.offsets.length);
+        this.strengths = Arrays.copyOf(other.strengths, other.strengths.length);
 
         this.origin.copyFrom(other.origin);
     }
@@ -18,56 +18,87 @@ package org.terasology.projectile.particleAffectors;
 import org.joml.Vector3f;
 import org.terasology.engine.particles.ParticleData;
 import org.terasology.engine.particles.ParticleDataMask;
+import org.terasology.engine.particles.ParticlePool;
 import org.terasology.engine.particles.functions.affectors.AffectorFunction;
 import org.terasology.engine.utilities.random.Random;
 
-import java.util.Map;
-
+/**
+ * Accelerates particles towards or away from the attractors of an {@link AttractorAffectorComponent} by the inverse
+ * square of their distance. The world positions of the attractors are resolved once per emitter per frame in
+ * {@link #beforeUpdates}; updating a particle does not allocate.
+ * <p>
+ * When the component knows the {@link AttractorAffectorComponent#emitter} it belongs to, {@link #beforeUpdates}
+ * affects all particles of its pool at once with a {@link BulkAttractorAffector} and the per-particle updates of the
+ * frame do nothing. The attractors then act before the per-particle updates of all other affectors.
+ */
 public class AttractorAffectorFunction extends AffectorFunction<AttractorAffectorComponent> {
     static final float EPS = 1e-2f;
 
+    private final Vector3f scratchOrigin = new Vector3f();
+    private final BulkAttractorAffector bulkAffector = new BulkAttractorAffector();
+
     public AttractorAffectorFunction() {
         super(ParticleDataMask.VELOCITY, ParticleDataMask.ENERGY);
     }
 
+    @Override
+    public void beforeUpdates(AttractorAffectorComponent component, Random random, float delta) {
+        ParticlePool pool = component.emitter != null ? component.emitter.particlePool : null;
+        if (pool != null) {
+            component.bulkUpdated = bulkAffector.update(component, pool.position, pool.velocity, pool.energy,
+                    pool.livingParticles(), random, delta);
+        } else {
+            component.bulkUpdated = false;
+            component.resolveAttractors(scratchOrigin);
+        }
+    }
+
     @Override
     public void update(final AttractorAffectorComponent component,
                        final ParticleData particleData,
                        final Random random,
                        final float delta
     ) {
-        if (component.origin == null) {
+        if (component.origin == null || component.bulkUpdated) {
             return;
         }
+        float[] positions = component.worldPositions;
+        float[] strengths = component.strengths;
+        if (positions.length != strengths.length * 3) {
+            // not resolved for this frame yet
+            component.resolveAttractors(scratchOrigin);
+            positions = component.worldPositions;
+        }
 
         Vector3f particlePos = particleData.position;
-        for (Map.Entry<Vector3f, Float> attractor : component.attractors.entrySet()) {
-            final Vector3f attractorOffset = attractor.getKey();
-            float strength = attractor.getValue();
-            Vector3f attractorPos = new Vector3f(attractorOffset).add(component.origin.getWorldPosition(new Vector3f()));
-            Vector3f displacementVector = attractorPos.sub(particlePos);
-            float displacementSquared = displacementVector.lengthSquared();
-            Vector3f acceleration = new Vector3f();
+        Vector3f velocity = particleData.velocity;
+        for (int i = 0; i < strengths.length; i++) {
+            float strength = strengths[i];
+            if (strength == 0) {
+                continue;
+            }
+            float dx = positions[i * 3] - particlePos.x;
+            float dy = positions[i * 3 + 1] - particlePos.y;
+            float dz = positions[i * 3 + 2] - particlePos.z;
+            float displacementSquared = dx * dx + dy * dy + dz * dz;
 
             if (strength > 0) {
                 if (displacementSquared < EPS) {
                     particleData.energy = 0;
                     continue;
                 }
-                acceleration = new Vector3f(displacementVector).normalize().div(displacementSquared);
-            } else if (strength < 0) {
-                strength = -strength;
-                if (displacementSquared == 0) {
-                    displacementVector = new Vector3f(random.nextFloat(-.1f, .1f), random.nextFloat(-.1f, .1f), random.nextFloat(-.1f, .1f));
-                    displacementSquared = displacementVector.lengthSquared();
-                }
-                acceleration = new Vector3f(displacementVector).normalize().div(displacementSquared).negate();
+            } else if (displacementSquared == 0) {
+                dx = random.nextFloat(-.1f, .1f);
+                dy = random.nextFloat(-.1f, .1f);
+                dz = random.nextFloat(-.1f, .1f);
+                displacementSquared = dx * dx + dy * dy + dz * dz;
             }
 
-            acceleration.mul(strength);
-            particleData.velocity.add(
-                acceleration.mul(delta)
-            );
+            // normalised displacement divided by its squared length, scaled by strength and time
+            float scale = strength * delta / (displacementSquared * (float) Math.sqrt(displacementSquared));
+            velocity.x += dx * scale;
+            velocity.y += dy * scale;
+            velocity.z += dz * scale;
         }
     }
 }
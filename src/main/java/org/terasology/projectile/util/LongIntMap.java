@@ -0,0 +1,192 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys to primitive {@code int} values, avoiding the boxing and
+ * entry objects of a {@code HashMap<Long, Integer>}. Not thread safe.
+ */
+public class LongIntMap {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final int missingValue;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+
+    /**
+     * @param missingValue the value returned by {@link #get(long)} for keys not in the map
+     */
+    public LongIntMap(int missingValue) {
+        this.missingValue = missingValue;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public int get(long key) {
+        int mask = keys.length - 1;
+        for (int bucket = hash(key) & mask; used[bucket]; bucket = (bucket + 1) & mask) {
+            if (keys[bucket] == key) {
+                return values[bucket];
+            }
+        }
+        return missingValue;
+    }
+
+    public boolean containsKey(long key) {
+        int mask = keys.length - 1;
+        for (int bucket = hash(key) & mask; used[bucket]; bucket = (bucket + 1) & mask) {
+            if (keys[bucket] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the previous value of the key, or the missing value
+     */
+    public int put(long key, int value) {
+        int mask = keys.length - 1;
+        int bucket = hash(key) & mask;
+        for (; used[bucket]; bucket = (bucket + 1) & mask) {
+            if (keys[bucket] == key) {
+                int previous = values[bucket];
+                values[bucket] = value;
+                return previous;
+            }
+        }
+        used[bucket] = true;
+        keys[bucket] = key;
+        values[bucket] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length * 2);
+        }
+        return missingValue;
+    }
+
+    /**
+     * @return the value the key was mapped to, or the missing value
+     */
+    public int remove(long key) {
+        int mask = keys.length - 1;
+        int bucket = hash(key) & mask;
+        for (; used[bucket]; bucket = (bucket + 1) & mask) {
+            if (keys[bucket] == key) {
+                int previous = values[bucket];
+                shiftBack(bucket);
+                size--;
+                return previous;
+            }
+        }
+        return missingValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Calls the visitor for every entry. The map must not be modified while iterating.
+     */
+    public void forEach(EntryVisitor visitor) {
+        for (int bucket = 0; bucket < keys.length; bucket++) {
+            if (used[bucket]) {
+                visitor.visit(keys[bucket], values[bucket]);
+            }
+        }
+    }
+
+    /**
+     * Removes every entry the predicate accepts.
+     */
+    public void removeIf(EntryPredicate predicate) {
+        int bucket = 0;
+        while (bucket < keys.length) {
+            if (used[bucket] && predicate.test(keys[bucket], values[bucket])) {
+                shiftBack(bucket);
+                size--;
+                // the slot may have been refilled by a shifted entry that has to be tested as well
+                continue;
+            }
+            bucket++;
+        }
+    }
+
+    /**
+     * Closes the gap left by removing the entry in the given bucket by shifting later entries of the probe sequence
+     * back, so that lookups never need tombstones.
+     */
+    private void shiftBack(int gap) {
+        int mask = keys.length - 1;
+        int bucket = gap;
+        while (true) {
+            bucket = (bucket + 1) & mask;
+            if (!used[bucket]) {
+                break;
+            }
+            int home = hash(keys[bucket]) & mask;
+            // move the entry if its home bucket does not lie cyclically within (gap, bucket]
+            boolean movable = gap <= bucket ? (home <= gap || home > bucket) : (home <= gap && home > bucket);
+            if (movable) {
+                keys[gap] = keys[bucket];
+                values[gap] = values[bucket];
+                gap = bucket;
+            }
+        }
+        used[gap] = false;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int bucket = hash(oldKeys[i]) & mask;
+                while (used[bucket]) {
+                    bucket = (bucket + 1) & mask;
+                }
+                used[bucket] = true;
+                keys[bucket] = oldKeys[i];
+                values[bucket] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(long key, int value);
+    }
+
+    @FunctionalInterface
+    public interface EntryPredicate {
+        boolean test(long key, int value);
+    }
+}
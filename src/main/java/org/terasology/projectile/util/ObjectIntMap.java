@@ -0,0 +1,114 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from object keys to primitive {@code int} values, avoiding the boxing and entry objects of
+ * a {@code HashMap<K, Integer>}. Keys are compared with {@link Object#equals}. Not thread safe.
+ *
+ * @param <K> the type of the keys, which must not be null
+ */
+public class ObjectIntMap<K> {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final int missingValue;
+
+    private Object[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * @param missingValue the value returned by {@link #get(Object)} for keys not in the map
+     */
+    public ObjectIntMap(int missingValue) {
+        this.missingValue = missingValue;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public int get(K key) {
+        int mask = keys.length - 1;
+        for (int bucket = hash(key) & mask; keys[bucket] != null; bucket = (bucket + 1) & mask) {
+            if (keys[bucket].equals(key)) {
+                return values[bucket];
+            }
+        }
+        return missingValue;
+    }
+
+    public boolean containsKey(K key) {
+        int mask = keys.length - 1;
+        for (int bucket = hash(key) & mask; keys[bucket] != null; bucket = (bucket + 1) & mask) {
+            if (keys[bucket].equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the previous value of the key, or the missing value
+     */
+    public int put(K key, int value) {
+        int mask = keys.length - 1;
+        int bucket = hash(key) & mask;
+        for (; keys[bucket] != null; bucket = (bucket + 1) & mask) {
+            if (keys[bucket].equals(key)) {
+                int previous = values[bucket];
+                values[bucket] = value;
+                return previous;
+            }
+        }
+        keys[bucket] = key;
+        values[bucket] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length * 2);
+        }
+        return missingValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries, keeping the capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int bucket = hash(oldKeys[i]) & mask;
+                while (keys[bucket] != null) {
+                    bucket = (bucket + 1) & mask;
+                }
+                keys[bucket] = oldKeys[i];
+                values[bucket] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new int[capacity];
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,176 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.fireball;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.entitySystem.entity.EntityBuilder;
+import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.metadata.ComponentLibrary;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.particles.ParticleSystemManager;
+import org.terasology.engine.particles.components.ParticleEmitterComponent;
+import org.terasology.engine.rendering.logic.MeshComponent;
+import org.terasology.gestalt.entitysystem.component.Component;
+import org.terasology.module.health.components.HealthComponent;
+import org.terasology.projectile.FireProjectileEvent;
+import org.terasology.projectile.ProjectileActionComponent;
+import org.terasology.projectile.ProjectileMotionComponent;
+import org.terasology.projectile.ProjectilePool;
+import org.terasology.projectile.particleAffectors.AttractorAffectorComponent;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Fires a pooled fireball, hits with it, parks it and fires it again, which must look like the first shot.
+ */
+public class PooledFireballTest {
+    private static final int HEALTH = 50;
+    private static final int MAX_PARTICLES = 100;
+
+    private final ComponentLibrary componentLibrary = mock(ComponentLibrary.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final FireballParticleLodSystem particleLod = mock(FireballParticleLodSystem.class);
+    private final FireballParticleHandlerSystem particleHandler = new FireballParticleHandlerSystem();
+
+    private Prefab prefab;
+    private Map<Class<?>, Component> components;
+    private EntityRef fireball;
+    private ProjectilePool pool;
+
+    @BeforeEach
+    public void setup() throws ReflectiveOperationException {
+        when(componentLibrary.copy(any())).thenAnswer(invocation -> copy(invocation.getArgument(0)));
+        when(entityManager.getComponentLibrary()).thenReturn(componentLibrary);
+
+        HealthComponent health = new HealthComponent();
+        health.maxHealth = HEALTH;
+        health.currentHealth = HEALTH;
+        ParticleEmitterComponent emitter = new ParticleEmitterComponent();
+        emitter.maxParticles = MAX_PARTICLES;
+        emitter.spawnRateMax = 20;
+        ProjectileActionComponent action = new ProjectileActionComponent();
+        action.poolSize = 1;
+        List<Component> prefabComponents = List.of(new FireballComponent(), health, emitter, new MeshComponent(), action);
+        prefab = mock(Prefab.class);
+        when(prefab.iterateComponents()).thenReturn(prefabComponents);
+        when(prefab.getComponent(any())).thenAnswer(invocation -> prefabComponents.stream()
+                .filter(component -> component.getClass() == invocation.getArgument(0)).findFirst().orElse(null));
+        when(prefab.hasComponent(any())).thenAnswer(invocation -> prefabComponents.stream()
+                .anyMatch(component -> component.getClass() == invocation.getArgument(0)));
+
+        components = new LinkedHashMap<>();
+        for (Component component : prefabComponents) {
+            components.put(component.getClass(), copy(component));
+        }
+        fireball = entity(components, prefab);
+        EntityBuilder builder = mock(EntityBuilder.class);
+        when(builder.build()).thenReturn(fireball);
+        when(entityManager.newBuilder(prefab)).thenReturn(builder);
+
+        particleHandler.particleSystemManager = mock(ParticleSystemManager.class);
+        particleHandler.particleLod = particleLod;
+        particleHandler.entityManager = entityManager;
+        pool = new ProjectilePool(entityManager);
+    }
+
+    @Test
+    public void refiredFireballStartsAsThePrefab() {
+        pool.prewarm(prefab, 1);
+        assertSame(fireball, pool.acquire(prefab));
+        fire();
+        hit();
+        assertTrue(pool.release(fireball));
+
+        assertSame(fireball, pool.acquire(prefab));
+        assertEquals(HEALTH, fireball.getComponent(HealthComponent.class).currentHealth);
+        assertEquals(MAX_PARTICLES, fireball.getComponent(ParticleEmitterComponent.class).maxParticles);
+        assertNotNull(fireball.getComponent(MeshComponent.class));
+        assertFalse(fireball.hasComponent(AttractorAffectorComponent.class));
+        assertFalse(fireball.hasComponent(ProjectileMotionComponent.class));
+        assertFalse(fireball.hasComponent(LocationComponent.class));
+        assertNotNull(pool.getMotion(fireball));
+
+        fire();
+        assertEquals(2, fireball.getComponent(AttractorAffectorComponent.class).getAttractorCount());
+        assertEquals(MAX_PARTICLES, fireball.getComponent(ParticleEmitterComponent.class).maxParticles);
+        assertTrue(fireball.getComponent(ParticleEmitterComponent.class).enabled);
+        verify(particleLod, times(2)).track(eq(fireball), any(MeshComponent.class));
+        verify(particleLod, never()).track(any(), isNull());
+    }
+
+    /**
+     * What the authority and the particle handler do to the fireball when it is fired
+     */
+    private void fire() {
+        fireball.addComponent(new ProjectileMotionComponent());
+        fireball.addOrSaveComponent(new LocationComponent(new Vector3f()));
+        particleHandler.onFire(new FireProjectileEvent(new Vector3f(), new Vector3f(0, 0, 1), null), fireball,
+                fireball.getComponent(ProjectileActionComponent.class));
+    }
+
+    /**
+     * What a hit does to the fireball, see {@link FireballCollisionHandler}
+     */
+    private void hit() {
+        fireball.getComponent(HealthComponent.class).currentHealth -= 30;
+        fireball.getComponent(ParticleEmitterComponent.class).maxParticles -= 12;
+    }
+
+    /**
+     * An entity keeping its components in the given map
+     */
+    @SuppressWarnings("unchecked")
+    private static EntityRef entity(Map<Class<?>, Component> components, Prefab prefab) {
+        EntityRef entity = mock(EntityRef.class);
+        when(entity.exists()).thenReturn(true);
+        when(entity.getParentPrefab()).thenReturn(prefab);
+        when(entity.getComponent(any())).thenAnswer(invocation -> components.get(invocation.<Class<?>>getArgument(0)));
+        when(entity.hasComponent(any())).thenAnswer(invocation ->
+                components.containsKey(invocation.<Class<?>>getArgument(0)));
+        when(entity.iterateComponents()).thenAnswer(invocation -> List.copyOf(components.values()));
+        when(entity.addComponent(any())).thenAnswer(invocation -> {
+            Component component = invocation.getArgument(0);
+            if (components.putIfAbsent(component.getClass(), component) != null) {
+                throw new IllegalStateException("already has " + component.getClass().getSimpleName());
+            }
+            return component;
+        });
+        when(entity.addOrSaveComponent(any())).thenAnswer(invocation -> {
+            Component component = invocation.getArgument(0);
+            components.put(component.getClass(), component);
+            return component;
+        });
+        doAnswer(invocation -> components.remove(invocation.<Class<?>>getArgument(0)))
+                .when(entity).removeComponent(any());
+        when(entity.send(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        return entity;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Component> T copy(T component) throws ReflectiveOperationException {
+        T copy = (T) component.getClass().getConstructor().newInstance();
+        copy.copyFrom(component);
+        return copy;
+    }
+}
@@ -0,0 +1,55 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.grenade;
+
+import org.joml.Vector3f;
+import org.joml.Vector3i;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExplosionSamplerTest {
+    private static final int RAYS = 64;
+
+    private final ExplosionSampler sampler = new ExplosionSampler(RAYS);
+    private final Vector3i center = sampler.getCenter(new Vector3f(4.4f, -2.6f, 0.5f), new Vector3i());
+
+    @Test
+    public void everyRayHitsTheCenterAndOneBlockPerStep() {
+        assertEquals(new Vector3i(4, -3, 1), center);
+        assertEquals(center, sampler.getBlock(0, center, new Vector3i()));
+        assertEquals(RAYS, sampler.getHits(0), 1e-3f);
+        float total = 0;
+        for (int i = 0; i < sampler.size(); i++) {
+            total += sampler.getHits(i);
+        }
+        assertEquals(RAYS * (ExplosionSampler.DEFAULT_REACH + 1), total, 1e-2f);
+    }
+
+    @Test
+    public void hitsFallOffWithDistance() {
+        Vector3i block = new Vector3i();
+        int previousDistance = 0;
+        float nearest = hitsAt(new Vector3i(1, 0, 0));
+        float farthest = hitsAt(new Vector3i(3, 0, 0));
+        assertTrue(nearest > farthest && farthest > 0, nearest + " " + farthest);
+        assertEquals(nearest, hitsAt(new Vector3i(0, 0, -1)), nearest * 0.05f);
+        for (int i = 0; i < sampler.size(); i++) {
+            int distance = (int) sampler.getBlock(i, center, block).sub(center).lengthSquared();
+            assertTrue(distance >= previousDistance);
+            assertTrue(distance <= ExplosionSampler.DEFAULT_REACH * ExplosionSampler.DEFAULT_REACH * 3);
+            previousDistance = distance;
+        }
+    }
+
+    private float hitsAt(Vector3i offset) {
+        Vector3i block = new Vector3i();
+        for (int i = 0; i < sampler.size(); i++) {
+            if (sampler.getBlock(i, center, block).sub(center).equals(offset)) {
+                return sampler.getHits(i);
+            }
+        }
+        return 0;
+    }
+}
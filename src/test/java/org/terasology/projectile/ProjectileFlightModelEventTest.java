@@ -0,0 +1,67 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class ProjectileFlightModelEventTest {
+    private static final float TICK = 1 / 60f;
+    private static final int TICKS = 180;
+
+    @Test
+    public void predictionsFlyLikeTheServer() {
+        ProjectileSimulationSettings settings = new ProjectileSimulationSettings();
+        settings.drag = true;
+        settings.integrator = FlightIntegrator.SEMI_IMPLICIT_EULER;
+        settings.substeps = 3;
+        ProjectileStore server = new ProjectileStore();
+        server.setAnalyticTrajectories(settings.analyticTrajectories);
+        server.setFlightModel(settings.drag, settings.integrator, settings.substeps, WindField.CALM);
+        server.setAdaptiveSubsteps(settings.adaptiveSubsteps, settings.maxSubstepLength, settings.maxSubsteps);
+        ProjectileStore client = new ProjectileStore();
+        new ProjectileFlightModelEvent(settings).applyTo(client);
+        ProjectileStore analytic = new ProjectileStore();
+        analytic.setAnalyticTrajectories(true);
+
+        Vector3f expected = fly(server);
+        assertEquals(expected, fly(client));
+        assertNotEquals(expected, fly(analytic));
+    }
+
+    @Test
+    public void matchesUntilTheFlightModelChanges() {
+        ProjectileSimulationSettings settings = new ProjectileSimulationSettings();
+        ProjectileFlightModelEvent event = new ProjectileFlightModelEvent(settings);
+        settings.hitEvents = false;
+        assertTrue(event.matches(settings));
+        settings.drag = true;
+        assertFalse(event.matches(settings));
+    }
+
+    private static Vector3f fly(ProjectileStore store) {
+        ProjectileActionComponent action = new ProjectileActionComponent();
+        action.maxDistance = -1;
+        action.affectedByGravity = true;
+        action.frictionCoefficient = 0.2f;
+        store.add(mock(EntityRef.class), new Vector3f(0, 64, 0), new Vector3f(3, 5, 20), 0, action);
+        for (int tick = 0; tick < TICKS; tick++) {
+            store.beginTick();
+            int count = store.size();
+            store.scheduleAll(TICK);
+            store.prepareStep(0, count, ProjectileAuthoritySystem.G, ProjectileAuthoritySystem.TERMINAL_VELOCITY);
+            for (int slot = 0; slot < count; slot++) {
+                store.commitStep(slot);
+            }
+            store.endTick();
+        }
+        return store.getPosition(0, new Vector3f());
+    }
+}
@@ -0,0 +1,63 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProjectileSpatialHashTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private ProjectileSpatialHash hash;
+
+    @BeforeEach
+    public void setup() {
+        hash = new ProjectileSpatialHash(8);
+        hash.insert(0, 0, 0, 0);
+        hash.insert(1, 100, -20, 5);
+        hash.insert(2, -3000, 64, 3000);
+    }
+
+    @Test
+    public void visitsOnlyCellsOverlappingTheBox() {
+        assertEquals(List.of(0), visit(-1, -1, -1, 1, 1, 1));
+        assertEquals(List.of(1), visit(90, -30, 0, 110, -10, 10));
+    }
+
+    @Test
+    public void infiniteBoundsVisitEveryOccupiedCell() {
+        float inf = Float.POSITIVE_INFINITY;
+        List<Integer> visited = assertTimeoutPreemptively(TIMEOUT, () -> visit(-inf, -inf, -inf, inf, inf, inf));
+        assertEquals(3, visited.size());
+    }
+
+    @Test
+    public void hugeBoundsVisitEveryOccupiedCell() {
+        float huge = Float.MAX_VALUE;
+        List<Integer> visited = assertTimeoutPreemptively(TIMEOUT, () -> visit(-huge, -huge, -huge, huge, huge, huge));
+        assertEquals(3, visited.size());
+    }
+
+    @Test
+    public void nanOrInvertedBoundsVisitNothing() {
+        float nan = Float.NaN;
+        assertTrue(visit(nan, 0, 0, 1, 1, 1).isEmpty());
+        assertTrue(visit(-1, -1, -1, 1, nan, 1).isEmpty());
+        assertTrue(visit(1, 1, 1, -1, -1, -1).isEmpty());
+    }
+
+    private List<Integer> visit(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        List<Integer> visited = new ArrayList<>();
+        hash.visitCandidates(minX, minY, minZ, maxX, maxY, maxZ, visited::add);
+        visited.sort(null);
+        return visited;
+    }
+}
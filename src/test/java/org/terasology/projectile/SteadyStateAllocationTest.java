@@ -0,0 +1,264 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.implementation.ExceptionMethod;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.physics.CollisionGroup;
+import org.terasology.engine.physics.HitResult;
+import org.terasology.engine.world.block.BlockManager;
+import org.terasology.gestalt.entitysystem.component.Component;
+import org.terasology.gestalt.entitysystem.event.Event;
+import org.terasology.projectile.collision.BatchRayCaster;
+import org.terasology.projectile.collision.RaySegmentBatch;
+import org.terasology.projectile.hit.HitBatch;
+import org.terasology.projectile.metrics.ProjectileMetrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that once the simulation has seen a tick of a given size, further ticks of that size neither grow the arrays
+ * nor allocate on the heap.
+ * <p>
+ * Mockito allocates on every call to a mock, so the measured code only calls entities and services implemented by the
+ * test itself.
+ */
+public class SteadyStateAllocationTest {
+    private static final int PROJECTILES = 256;
+    private static final int WARMUP_TICKS = 2000;
+    private static final int MEASURED_TICKS = 1000;
+    private static final float TICK = 1 / 60f;
+    private static final HitResult MISS = new HitResult();
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    @BeforeAll
+    public static void enableAllocationCounting() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "the JVM does not count allocations per thread");
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "the JVM does not count allocations per thread");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void storeStepsWithoutAllocating() {
+        ProjectileStore store = new ProjectileStore();
+        RaySegmentBatch segments = new RaySegmentBatch();
+        ProjectileActionComponent action = new ProjectileActionComponent();
+        action.maxDistance = -1;
+        action.affectedByGravity = true;
+        for (int i = 0; i < PROJECTILES; i++) {
+            store.add(entity(i + 1), new Vector3f(i, 64, 0), new Vector3f(1, 0, 20), 0, action);
+        }
+        int capacity = store.capacity();
+
+        runStore(store, segments, WARMUP_TICKS);
+        long allocated = allocatedBytes();
+        runStore(store, segments, MEASURED_TICKS);
+        allocated = allocatedBytes() - allocated;
+
+        assertEquals(capacity, store.capacity());
+        assertEquals(PROJECTILES, store.liveCount());
+        assertEquals(0, allocated, "steady-state ticks allocated " + allocated + " bytes");
+    }
+
+    @Test
+    public void authorityTicksWithoutAllocating() throws ReflectiveOperationException {
+        ProjectileAuthoritySystem authority = new ProjectileAuthoritySystem();
+        inject(authority, "time", implement(FixedTime.class));
+        inject(authority, "metrics", new ProjectileMetrics());
+        inject(authority, "blockManager", mock(BlockManager.class));
+        authority.setRayCaster(new MissingRayCaster());
+        authority.initialise();
+        ProjectileActionComponent action = new ProjectileActionComponent();
+        action.maxDistance = -1;
+        action.affectedByGravity = true;
+        FlyingEntity[] entities = new FlyingEntity[PROJECTILES];
+        for (int i = 0; i < PROJECTILES; i++) {
+            FlyingEntity entity = implement(FlyingEntity.class);
+            entity.id = i + 1;
+            entity.motion.currentVelocity = new Vector3f(1, 0, 20);
+            entity.location = new LocationComponent(new Vector3f(i, 64, 0));
+            authority.onProjectileActivated(null, entity, entity.motion, action, entity.location);
+            entities[i] = entity;
+        }
+
+        runAuthority(authority, WARMUP_TICKS);
+        int saves = entities[0].saves;
+        long allocated = allocatedBytes();
+        runAuthority(authority, MEASURED_TICKS);
+        allocated = allocatedBytes() - allocated;
+
+        // every tick wrote the flight back into the entities
+        assertEquals(MEASURED_TICKS, entities[0].saves - saves);
+        assertEquals(0, entities[0].events);
+        assertEquals(0, allocated, "steady-state authority ticks allocated " + allocated + " bytes");
+    }
+
+    @Test
+    public void hitBatchQueuesWithoutAllocating() {
+        HitBatch batch = new HitBatch();
+        EntityRef[] targets = new EntityRef[PROJECTILES / 4];
+        EntityRef[] projectiles = new EntityRef[PROJECTILES];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = entity(i + 1);
+        }
+        for (int i = 0; i < projectiles.length; i++) {
+            projectiles[i] = entity(targets.length + i + 1);
+        }
+
+        runHits(batch, targets, projectiles, WARMUP_TICKS);
+        long allocated = allocatedBytes();
+        runHits(batch, targets, projectiles, MEASURED_TICKS);
+        allocated = allocatedBytes() - allocated;
+
+        assertTrue(batch.isEmpty());
+        assertEquals(0, allocated, "steady-state hits allocated " + allocated + " bytes");
+    }
+
+    private static void runAuthority(ProjectileAuthoritySystem authority, int ticks) {
+        for (int tick = 0; tick < ticks; tick++) {
+            authority.update(TICK);
+        }
+    }
+
+    private static void runStore(ProjectileStore store, RaySegmentBatch segments, int ticks) {
+        for (int tick = 0; tick < ticks; tick++) {
+            store.beginTick();
+            int count = store.size();
+            store.scheduleAll(TICK);
+            store.prepareStep(0, count, ProjectileAuthoritySystem.G, ProjectileAuthoritySystem.TERMINAL_VELOCITY);
+            segments.clear();
+            store.collectSegments(segments, 0.01f);
+            store.dispatchOrder(count, true);
+            for (int slot = 0; slot < count; slot++) {
+                store.commitStep(slot);
+            }
+            store.endTick();
+        }
+    }
+
+    private static void runHits(HitBatch batch, EntityRef[] targets, EntityRef[] projectiles, int ticks) {
+        for (int tick = 0; tick < ticks; tick++) {
+            for (int i = 0; i < projectiles.length; i++) {
+                EntityRef target = targets[i % targets.length];
+                batch.damage(target, 3, null);
+                if (batch.getPendingDamage(target) <= 0 || batch.isStopped(projectiles[i])) {
+                    throw new IllegalStateException("hit was not queued");
+                }
+                if (i % 2 == 0) {
+                    batch.deactivate(projectiles[i]);
+                } else {
+                    batch.destroy(projectiles[i]);
+                }
+            }
+            // flushing sends a damage event per target by design, queueing must not allocate on its own
+            batch.clear();
+        }
+    }
+
+    private static long allocatedBytes() {
+        return threads.getCurrentThreadAllocatedBytes();
+    }
+
+    private static void inject(Object system, String name, Object value) throws ReflectiveOperationException {
+        Field field = system.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(system, value);
+    }
+
+    /**
+     * Instantiates the given abstract class, whose abstract methods throw
+     */
+    private static <T> T implement(Class<T> type) throws ReflectiveOperationException {
+        return new ByteBuddy().subclass(type)
+                .method(ElementMatchers.isAbstract()).intercept(ExceptionMethod.throwing(UnsupportedOperationException.class))
+                .make().load(type.getClassLoader()).getLoaded().getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * A projectile in flight, holding its components in fields
+     */
+    public abstract static class FlyingEntity extends EntityRef {
+        final ProjectileMotionComponent motion = new ProjectileMotionComponent();
+        LocationComponent location;
+        long id;
+        int saves;
+        int events;
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public <T extends Component> T getComponent(Class<T> type) {
+            if (type == ProjectileMotionComponent.class) {
+                return type.cast(motion);
+            }
+            return type == LocationComponent.class ? type.cast(location) : null;
+        }
+
+        @Override
+        public boolean hasComponent(Class<? extends Component> type) {
+            return type == ProjectileMotionComponent.class || type == LocationComponent.class;
+        }
+
+        @Override
+        public void saveComponent(Component component) {
+            saves++;
+        }
+
+        @Override
+        public <T extends Event> T send(T event) {
+            events++;
+            return event;
+        }
+    }
+
+    public abstract static class FixedTime implements Time {
+        @Override
+        public long getGameTimeInMs() {
+            return 0;
+        }
+    }
+
+    private static final class MissingRayCaster implements BatchRayCaster {
+        @Override
+        public void cast(RaySegmentBatch batch, int from, int to, CollisionGroup... filter) {
+            for (int position = from; position < to; position++) {
+                batch.setResult(batch.indexAt(position), MISS);
+            }
+        }
+    }
+
+    /**
+     * A mocked entity. Mockito allocates on every stubbed call, so the measured code must only compare and hash the
+     * entities, which mocks do by identity without allocating.
+     */
+    private static EntityRef entity(long id) {
+        EntityRef entity = mock(EntityRef.class);
+        when(entity.getId()).thenReturn(id);
+        return entity;
+    }
+}
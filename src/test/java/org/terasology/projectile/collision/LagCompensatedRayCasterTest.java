@@ -0,0 +1,113 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.collision;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.physics.CollisionGroup;
+import org.terasology.engine.physics.HitResult;
+import org.terasology.engine.physics.StandardCollisionGroup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LagCompensatedRayCasterTest {
+    private static final CollisionGroup[] FILTER = {StandardCollisionGroup.WORLD, StandardCollisionGroup.CHARACTER};
+    private static final long NOW = 1000;
+
+    private final CharacterHistory history = new CharacterHistory(4, 1);
+    private final RaySegmentBatch batch = new RaySegmentBatch();
+    private final List<Boolean> castCharacters = new ArrayList<>();
+
+    private EntityRef recorded;
+    private EntityRef unrecorded;
+    private HitResult liveHit;
+    private HitResult miss;
+
+    @BeforeEach
+    public void setup() {
+        recorded = mock(EntityRef.class);
+        unrecorded = mock(EntityRef.class);
+        miss = mock(HitResult.class);
+        batch.add(0, 0, 0, 0, 0, 0, 1, 20);
+        batch.sortByChunk();
+    }
+
+    @Test
+    public void hitsCharactersTheHistoryHasNoRoomForWhereTheyAre() {
+        record(true);
+        liveHit = hit(unrecorded, 4.5f);
+
+        cast();
+
+        assertSame(liveHit, batch.getResult(0));
+        assertEquals(List.of(true), castCharacters);
+    }
+
+    @Test
+    public void rewindsRecordedCharactersEvenWhileOthersAreHitWhereTheyAre() {
+        record(true);
+        liveHit = hit(recorded, 9.5f);
+
+        cast();
+
+        HitResult result = batch.getResult(0);
+        assertNotNull(result);
+        assertNotSame(liveHit, result);
+        assertEquals(List.of(true, false), castCharacters);
+    }
+
+    @Test
+    public void castsOnlyTheWorldLiveWhileTheHistoryHoldsEveryCharacter() {
+        record(false);
+        liveHit = hit(recorded, 9.5f);
+
+        cast();
+
+        assertNotSame(liveHit, batch.getResult(0));
+        assertEquals(List.of(false), castCharacters);
+    }
+
+    private void record(boolean overflow) {
+        history.beginFrame(NOW);
+        assertTrue(history.record(recorded, 0, 0, 10, 0.5f, 2));
+        if (overflow) {
+            assertFalse(history.record(unrecorded, 0, 0, 5, 0.5f, 2));
+        }
+        history.endFrame();
+        assertEquals(overflow ? 1 : 0, history.getOverflowCount());
+    }
+
+    private void cast() {
+        BatchRayCaster physics = (segments, from, to, filter) -> {
+            boolean characters = Arrays.asList(filter).contains(StandardCollisionGroup.CHARACTER);
+            castCharacters.add(characters);
+            for (int position = from; position < to; position++) {
+                segments.setResult(segments.indexAt(position), characters ? liveHit : miss);
+            }
+        };
+        LagCompensatedRayCaster caster = new LagCompensatedRayCaster(physics, history);
+        caster.setTime(NOW, 0);
+        caster.cast(batch, 0, batch.size(), FILTER);
+    }
+
+    private static HitResult hit(EntityRef entity, float distance) {
+        HitResult hit = mock(HitResult.class);
+        when(hit.isHit()).thenReturn(true);
+        when(hit.getEntity()).thenReturn(entity);
+        when(hit.getHitPoint()).thenReturn(new Vector3f(0, 0, distance));
+        return hit;
+    }
+}
@@ -0,0 +1,55 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.collision;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.logic.characters.CharacterComponent;
+import org.terasology.engine.network.PingStockComponent;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PingLatencyEstimatorTest {
+    private final PingLatencyEstimator estimator = new PingLatencyEstimator();
+
+    private EntityRef client;
+    private EntityRef shooter;
+
+    @BeforeEach
+    public void setup() {
+        client = mock(EntityRef.class);
+        when(client.exists()).thenReturn(true);
+        CharacterComponent character = new CharacterComponent();
+        character.controller = client;
+        shooter = mock(EntityRef.class);
+        when(shooter.getComponent(CharacterComponent.class)).thenReturn(character);
+    }
+
+    @Test
+    public void usesThePingOfTheClientControllingTheShooter() {
+        EntityRef otherClient = mock(EntityRef.class);
+        PingStockComponent pingStock = new PingStockComponent();
+        pingStock.setValues(Map.of(client, 120L, otherClient, 40L));
+        when(client.getComponent(PingStockComponent.class)).thenReturn(pingStock);
+
+        assertEquals(120, estimator.getLatency(shooter));
+    }
+
+    @Test
+    public void asksTheEngineForPingsOfUnmeasuredClients() {
+        assertEquals(0, estimator.getLatency(shooter));
+        verify(client).addComponent(any(PingStockComponent.class));
+    }
+
+    @Test
+    public void entitiesWithoutClientHaveNoLatency() {
+        assertEquals(0, estimator.getLatency(mock(EntityRef.class)));
+    }
+}
@@ -0,0 +1,69 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.projectile.particleAffectors;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.particles.ParticleData;
+import org.terasology.engine.utilities.random.FastRandom;
+import org.terasology.engine.utilities.random.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BulkAttractorAffectorTest {
+    private static final int PARTICLES = 4096;
+    private static final float DELTA = 1 / 60f;
+
+    @Test
+    public void affectsParticlesLikeThePerParticleFunction() {
+        AttractorAffectorComponent component = new AttractorAffectorComponent();
+        component.origin = new LocationComponent(new Vector3f());
+        component.addAttractor(new Vector3f(), -.1f);
+        component.addAttractor(new Vector3f(.05f, 0, 0), .3f);
+        component.addAttractor(new Vector3f(.2f, .1f, -.1f), .3f);
+
+        java.util.Random positions = new java.util.Random(7);
+        float[] position = new float[PARTICLES * 3];
+        float[] velocity = new float[PARTICLES * 3];
+        float[] energy = new float[PARTICLES];
+        ParticleData[] particles = new ParticleData[PARTICLES];
+        for (int p = 0; p < PARTICLES; p++) {
+            particles[p] = new ParticleData();
+            particles[p].position.set(positions.nextFloat() - .5f, positions.nextFloat() - .5f,
+                    positions.nextFloat() - .5f);
+            particles[p].velocity.set(positions.nextFloat(), 0, -positions.nextFloat());
+            particles[p].energy = 1;
+            store(particles[p].position, position, p);
+            store(particles[p].velocity, velocity, p);
+            energy[p] = 1;
+        }
+
+        Random random = new FastRandom(1);
+        AttractorAffectorFunction function = new AttractorAffectorFunction();
+        function.beforeUpdates(component, random, DELTA);
+        for (ParticleData particle : particles) {
+            function.update(component, particle, random, DELTA);
+        }
+        assertTrue(new BulkAttractorAffector().update(component, position, velocity, energy, PARTICLES, random, DELTA));
+
+        int captured = 0;
+        for (int p = 0; p < PARTICLES; p++) {
+            assertEquals(particles[p].velocity.x, velocity[p * 3], 0);
+            assertEquals(particles[p].velocity.y, velocity[p * 3 + 1], 0);
+            assertEquals(particles[p].velocity.z, velocity[p * 3 + 2], 0);
+            assertEquals(particles[p].energy, energy[p], 0);
+            if (energy[p] == 0) {
+                captured++;
+            }
+        }
+        assertTrue(captured > 0, "no particle reached an attracting attractor");
+    }
+
+    private static void store(Vector3f vector, float[] packed, int index) {
+        packed[index * 3] = vector.x;
+        packed[index * 3 + 1] = vector.y;
+        packed[index * 3 + 2] = vector.z;
+    }
+}